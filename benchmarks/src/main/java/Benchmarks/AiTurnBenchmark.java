@@ -0,0 +1,45 @@
+package Benchmarks;
+
+import Controller.AI;
+import Controller.GameEngine;
+import Controller.GameListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete turns of the heuristic AI over the recorded positions of a game phase.
+ * Every invocation replays the next position on a new game, outside of the measured time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AiTurnBenchmark {
+    @Param({"early", "mid", "late"})
+    public String phase;
+
+    private List<Positions.Position> positions;
+    private int next;
+    private AI ai;
+
+    @Setup(Level.Trial)
+    public void loadPositions() {
+        positions = Positions.load(phase);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextPosition() {
+        GameEngine engine = positions.get(next).replay();
+        next = (next + 1) % positions.size();
+        ai = new AI(GameListener.NONE, engine.getGameRules(), engine.getTurn());
+    }
+
+    @Benchmark
+    public void aiTurn() {
+        ai.AiTurn();
+    }
+}
@@ -0,0 +1,70 @@
+package Benchmarks;
+
+import Controller.GameRules;
+import Model.Board;
+import Model.Player;
+import Utilities.BFS;
+import Utilities.PathEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the shortest path searches of both players over the recorded positions of a game phase.
+ * {@code calculateBFS} runs on the adjacency list {@link Board}, {@code calculatePath} is the search that
+ * {@code AI.calculatePath} runs on the game's board before it steps around the other pawn.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathBenchmark {
+    @Param({"early", "mid", "late"})
+    public String phase;
+
+    private GameRules[] games;
+    private Board[] boards;
+
+    @Setup
+    public void setup() {
+        List<Positions.Position> positions = Positions.load(phase);
+        games = new GameRules[positions.size()];
+        boards = new Board[positions.size()];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = positions.get(i).replay().getGameRules();
+            boards[i] = Positions.Position.toBoard(games[i]);
+        }
+    }
+
+    @Benchmark
+    public void calculateBFS(Blackhole blackhole) {
+        for (int i = 0; i < games.length; i++)
+            for (int id = 0; id < 2; id++) {
+                Player player = games[i].getPlayer(id);
+                blackhole.consume(BFS.calculateBFS(boards[i].graph, player.getPosition(), player.getDestRow()));
+            }
+    }
+
+    @Benchmark
+    public void calculatePath(Blackhole blackhole) {
+        PathEngine engine = PathEngine.get();
+        for (GameRules game : games)
+            for (int id = 0; id < 2; id++) {
+                Player player = game.getPlayer(id);
+                blackhole.consume(engine.calculatePath(game.getBoard(), player.getPosition(), player.getDestRow()));
+            }
+    }
+
+    @Benchmark
+    public void distanceToGoal(Blackhole blackhole) {
+        for (GameRules game : games)
+            for (int id = 0; id < 2; id++) {
+                Player player = game.getPlayer(id);
+                blackhole.consume(game.getBoard().distanceToGoal(player.getPosition().toIndex(), player.getDestRow()));
+            }
+    }
+}
@@ -0,0 +1,59 @@
+package Benchmarks;
+
+import Controller.GameRules;
+import Model.MoveGenerator;
+import Model.Square;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation of the pawn moves of both players over the recorded positions of a game phase.
+ * {@code neighbourhood} tries every square within two steps with {@code GameRules.isValidTraversal},
+ * {@code moveGenerator} is {@link MoveGenerator} writing into a reused buffer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PawnMoveBenchmark {
+    @Param({"early", "mid", "late"})
+    public String phase;
+
+    private GameRules[] games;
+    private final int[] moves = new int[MoveGenerator.MAX_PAWN_MOVES];
+
+    @Setup
+    public void setup() {
+        List<Positions.Position> positions = Positions.load(phase);
+        games = new GameRules[positions.size()];
+        for (int i = 0; i < games.length; i++)
+            games[i] = positions.get(i).replay().getGameRules();
+    }
+
+    @Benchmark
+    public int neighbourhood() {
+        int count = 0;
+        for (GameRules game : games)
+            for (int id = 0; id < 2; id++) {
+                Square square = game.getPlayer(id).getPosition(), other = game.getPlayer(1 - id).getPosition();
+                for (Square sq : square.neighbourhood(2))
+                    if (game.isValidTraversal(square, sq, other))
+                        count++;
+            }
+        return count;
+    }
+
+    @Benchmark
+    public void moveGenerator(Blackhole blackhole) {
+        for (GameRules game : games)
+            for (int id = 0; id < 2; id++) {
+                int square = game.getPlayer(id).getPosition().toIndex(), other = game.getPlayer(1 - id).getPosition().toIndex();
+                blackhole.consume(MoveGenerator.generatePawnMoves(game.getBoard(), square, other, moves));
+            }
+    }
+}
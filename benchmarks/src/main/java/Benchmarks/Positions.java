@@ -0,0 +1,98 @@
+package Benchmarks;
+
+import Controller.GameEngine;
+import Controller.GameRules;
+import Model.Board;
+import Model.GameBoard;
+import Model.Wall;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The corpus of recorded positions that the benchmarks run on, read from positions.txt.
+ */
+public abstract class Positions {
+    /**
+     * A recorded position: the moves that lead to it from the start of a game.
+     */
+    public static class Position {
+        private final String phase;
+        private final int startingPlayer;
+        private final String[] moves;
+
+        Position(String phase, int startingPlayer, String[] moves) {
+            this.phase = phase;
+            this.startingPlayer = startingPlayer;
+            this.moves = moves;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        /**
+         * Plays the moves of the position on a new game.
+         *
+         * @return The game at the position.
+         */
+        public GameEngine replay() {
+            GameEngine engine = new GameEngine(startingPlayer);
+            for (String move : moves)
+                if (!engine.applyMove(move))
+                    throw new IllegalStateException("Illegal move " + move + " in a recorded position");
+            return engine;
+        }
+
+        /**
+         * Builds the adjacency list board of the position, with the same walls as the game.
+         *
+         * @param gameRules The game at the position.
+         * @return The board.
+         */
+        public static Board toBoard(GameRules gameRules) {
+            Board board = new Board();
+            GameBoard gameBoard = gameRules.getBoard();
+            for (int slot = 0; slot < Wall.WALL_SLOTS; slot++)
+                if (gameBoard.hasWall(slot))
+                    board.addWall(Wall.fromSlot(slot));
+            return board;
+        }
+    }
+
+    /**
+     * Reads the positions of a game phase.
+     *
+     * @param phase "early", "mid" or "late".
+     * @return The positions of the phase, in the order of the file.
+     */
+    public static List<Position> load(String phase) {
+        List<Position> positions = new ArrayList<>();
+        try (InputStream stream = Positions.class.getResourceAsStream("/positions.txt");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0)
+                    line = line.substring(0, comment);
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length < 2 || !tokens[0].equals(phase))
+                    continue;
+                String[] moves = new String[tokens.length - 2];
+                System.arraycopy(tokens, 2, moves, 0, moves.length);
+                positions.add(new Position(tokens[0], Integer.parseInt(tokens[1]), moves));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (positions.isEmpty())
+            throw new IllegalArgumentException("No recorded positions of phase " + phase);
+        return positions;
+    }
+}
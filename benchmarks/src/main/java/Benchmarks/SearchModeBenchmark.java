@@ -0,0 +1,79 @@
+package Benchmarks;
+
+import Controller.GameRules;
+import Model.Player;
+import Utilities.PathEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the search modes of {@link PathEngine} on the shortest paths of both players over the recorded positions
+ * of a game phase. Besides the time, every mode reports the squares it expanded and the searches it ran in an
+ * iteration, as the {@code expansions} and {@code searches} counters, so expansions / searches is the mean number of
+ * squares a search of that mode expands.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchModeBenchmark {
+    @Param({"early", "mid", "late"})
+    public String phase;
+
+    @Param({"BFS", "A_STAR", "BIDIRECTIONAL"})
+    public PathEngine.Mode mode;
+
+    private GameRules[] games;
+    private final int[] path = new int[81];
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long expansions;
+        public long searches;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            expansions = searches = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        List<Positions.Position> positions = Positions.load(phase);
+        games = new GameRules[positions.size()];
+        for (int i = 0; i < games.length; i++)
+            games[i] = positions.get(i).replay().getGameRules();
+    }
+
+    @Benchmark
+    public void distance(Counters counters, Blackhole blackhole) {
+        PathEngine engine = PathEngine.get();
+        long expansions = engine.getExpansionCount();
+        for (GameRules game : games)
+            for (int id = 0; id < 2; id++) {
+                Player player = game.getPlayer(id);
+                blackhole.consume(engine.distance(game.getBoard(), player.getPosition().toIndex(), player.getDestRow(), mode));
+            }
+        counters.expansions += engine.getExpansionCount() - expansions;
+        counters.searches += 2L * games.length;
+    }
+
+    @Benchmark
+    public void path(Counters counters, Blackhole blackhole) {
+        PathEngine engine = PathEngine.get();
+        long expansions = engine.getExpansionCount();
+        for (GameRules game : games)
+            for (int id = 0; id < 2; id++) {
+                Player player = game.getPlayer(id);
+                blackhole.consume(engine.path(game.getBoard(), player.getPosition().toIndex(), player.getDestRow(), path, mode));
+            }
+        counters.expansions += engine.getExpansionCount() - expansions;
+        counters.searches += 2L * games.length;
+    }
+}
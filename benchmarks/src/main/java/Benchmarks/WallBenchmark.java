@@ -0,0 +1,142 @@
+package Benchmarks;
+
+import Controller.GameRules;
+import Model.BitBoard;
+import Model.Board;
+import Model.GameBoard;
+import Model.Wall;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures wall legality checks, conflict checks against the placed walls, adding and removing walls and the path lengths
+ * of both players after every wall over the recorded positions of a game phase,
+ * on the adjacency list {@link Board} and on the {@link BitBoard} the game uses.
+ * The path lengths are measured in one batch and, for comparison, by placing the walls one by one on the {@link BitBoard}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WallBenchmark {
+    @Param({"early", "mid", "late"})
+    public String phase;
+
+    private GameRules[] games;
+    private Board[] boards;
+    private final Wall[] allWalls = new Wall[Wall.WALL_SLOTS];
+    // A free wall of every position, for the add and remove round trip.
+    private Wall[] freeWalls;
+    private final int[] distances = new int[Wall.WALL_SLOTS];
+
+    @Setup
+    public void setup() {
+        List<Positions.Position> positions = Positions.load(phase);
+        games = new GameRules[positions.size()];
+        boards = new Board[positions.size()];
+        freeWalls = new Wall[positions.size()];
+        for (int slot = 0; slot < Wall.WALL_SLOTS; slot++)
+            allWalls[slot] = Wall.fromSlot(slot);
+        long[] free = new long[2];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = positions.get(i).replay().getGameRules();
+            boards[i] = Positions.Position.toBoard(games[i]);
+            boards[i].getFreeWalls(free);
+            int slot = free[0] != 0 ? Long.numberOfTrailingZeros(free[0]) : 64 + Long.numberOfTrailingZeros(free[1]);
+            freeWalls[i] = allWalls[slot];
+        }
+    }
+
+    @Benchmark
+    public void boardIsLegalWallPlacement(Blackhole blackhole) {
+        for (int i = 0; i < games.length; i++)
+            isLegalWallPlacement(boards[i], games[i], blackhole);
+    }
+
+    @Benchmark
+    public void bitBoardIsLegalWallPlacement(Blackhole blackhole) {
+        for (GameRules game : games)
+            isLegalWallPlacement(game.getBoard(), game, blackhole);
+    }
+
+    @Benchmark
+    public void boardDoesWallCrossAnother(Blackhole blackhole) {
+        for (Board board : boards)
+            doesWallCrossAnother(board, blackhole);
+    }
+
+    @Benchmark
+    public void bitBoardDoesWallCrossAnother(Blackhole blackhole) {
+        for (GameRules game : games)
+            doesWallCrossAnother(game.getBoard(), blackhole);
+    }
+
+    @Benchmark
+    public void boardAddRemoveWall(Blackhole blackhole) {
+        for (int i = 0; i < games.length; i++)
+            addRemoveWall(boards[i], freeWalls[i], blackhole);
+    }
+
+    @Benchmark
+    public void bitBoardAddRemoveWall(Blackhole blackhole) {
+        for (int i = 0; i < games.length; i++)
+            addRemoveWall(games[i].getBoard(), freeWalls[i], blackhole);
+    }
+
+    @Benchmark
+    public void boardWallDistances(Blackhole blackhole) {
+        for (int i = 0; i < games.length; i++)
+            wallDistances(boards[i], games[i], blackhole);
+    }
+
+    @Benchmark
+    public void bitBoardWallDistances(Blackhole blackhole) {
+        for (GameRules game : games)
+            wallDistances(game.getBoard(), game, blackhole);
+    }
+
+    @Benchmark
+    public void bitBoardProbeWallDistances(Blackhole blackhole) {
+        for (GameRules game : games) {
+            GameBoard board = game.getBoard();
+            for (int id = 0; id < 2; id++) {
+                int square = game.getPlayer(id).getPosition().toIndex(), destRow = game.getPlayer(id).getDestRow();
+                for (int slot = 0; slot < Wall.WALL_SLOTS; slot++) {
+                    if (board.doesWallCrossAnother(allWalls[slot]))
+                        continue;
+                    board.addWall(slot);
+                    blackhole.consume(board.distanceToGoal(square, destRow));
+                    board.removeWall(slot);
+                }
+            }
+        }
+    }
+
+    private void wallDistances(GameBoard board, GameRules game, Blackhole blackhole) {
+        for (int id = 0; id < 2; id++) {
+            board.getWallDistances(game.getPlayer(id).getPosition().toIndex(), game.getPlayer(id).getDestRow(), distances);
+            blackhole.consume(distances);
+        }
+    }
+
+    private void isLegalWallPlacement(GameBoard board, GameRules game, Blackhole blackhole) {
+        for (Wall wall : allWalls)
+            blackhole.consume(board.isLegalWallPlacement(wall, game.getPlayer(0), game.getPlayer(1)));
+    }
+
+    private void doesWallCrossAnother(GameBoard board, Blackhole blackhole) {
+        for (Wall wall : allWalls)
+            blackhole.consume(board.doesWallCrossAnother(wall));
+    }
+
+    private static void addRemoveWall(GameBoard board, Wall wall, Blackhole blackhole) {
+        board.addWall(wall);
+        blackhole.consume(board.hasWall(wall.toSlot()));
+        board.removeWall(wall);
+    }
+}
@@ -1,25 +1,40 @@
 package Controller;
 
+import Model.GameBoard;
+import Model.Move;
+import Model.MoveGenerator;
 import Model.Player;
 import Model.Square;
 import Model.Wall;
+import Utilities.PathEngine;
+import Utilities.RaceTablebase;
+import Utilities.TranspositionTable;
 
 import java.util.*;
 
-import static Utilities.BFS.calculateBFS;
 import static Utilities.Constants.BOARD_DIMENSION;
 
 /**
  * This class contains the algorithm to decide a move for the AI player.
  */
-public class AI {
+public class AI implements Agent {
+    /**
+     * Mixed into the state hash when the opponent gets a head start, since the decision depends on it.
+     */
+    private static final long HEAD_START_KEY = 0x2545F4914F6CDD1DL;
+
     private final GameRules gameRules;
 
-    private final ViewUpdater viewUpdater;
+    private final GameListener listener;
     private final int agentID;
     private final Player agentPlayer;
     private final Player opponentPlayer;
-    private List<Square>[] graphOfBoard;
+    private final TranspositionTable decisions;
+    private OpeningBook book;
+    private final int[] pawnMoves = new int[MoveGenerator.MAX_PAWN_MOVES];
+    private GameBoard board;
+    private final AiMetrics.Turn metrics;
+    private final WallEvaluator wallEvaluator = new WallEvaluator();
 
 
     /**
@@ -28,10 +43,24 @@ public class AI {
      * @param id          The ID of the AI agent.
      * @param gameRules The game rules class.
      */
-    public AI(ViewUpdater viewUpdater, GameRules gameRules, int id) {
+    public AI(GameListener listener, GameRules gameRules, int id) {
+        this(listener, gameRules, id, new TranspositionTable(14, TranspositionTable.ReplacementPolicy.ALWAYS));
+    }
+
+    /**
+     * Constructs a new AI object that remembers its decisions in the given table,
+     * a table can be shared by AI objects of different games.
+     *
+     * @param id          The ID of the AI agent.
+     * @param gameRules The game rules class.
+     * @param decisions The table of moves decided in earlier turns.
+     */
+    public AI(GameListener listener, GameRules gameRules, int id, TranspositionTable decisions) {
         this.agentID = id;
         this.gameRules = gameRules;
-        this.viewUpdater = viewUpdater;
+        this.listener = listener;
+        this.decisions = decisions;
+        this.metrics = new AiMetrics.Turn("ai", id);
 
         this.agentPlayer = gameRules.getPlayer(id);
         this.opponentPlayer = gameRules.getPlayer((id + 1) % 2);
@@ -41,24 +70,60 @@ public class AI {
 
     /**
      * Initiates the AI's turn, making decisions based on the game state.
+     * The turn is recorded in the {@link AiMetrics}.
      */
     public void AiTurn() {
-        setGraphOfBoard(gameRules.getBoard().graph);
+        setBoard(gameRules.getBoard());
         if(gameRules.getTurn() == agentID) {
-            if (agentPlayer.getWallsLeft() == 0)
-                takeShortestPath();
-            else
-                compareBetweenPaths();
+            metrics.begin(getBoard());
+            decideOnMove();
+            metrics.end(gameRules.getMoveNum());
         }
     }
 
+    /**
+     * Decides on a move and makes it.
+     * A state in the opening book is answered from the book and a state that was already decided on
+     * from the table of decisions. A race, where neither player has walls left, is played from the race tablebase.
+     */
+    private void decideOnMove() {
+        if (book != null && book.playBookMove(gameRules, listener))
+            return;
+        long key = gameRules.getZobristKey() ^ (decideOnOpponentHeadStart() == 0 ? 0 : HEAD_START_KEY);
+        long entry = decisions.probe(key);
+        // A stale or colliding entry may hold a move that isn't legal any more, the AI decides by itself then,
+        // without telling the listener about a move that was never made.
+        if (entry != TranspositionTable.MISS && gameRules.isLegalMove(TranspositionTable.move(entry))) {
+            makeMove(TranspositionTable.move(entry));
+            return;
+        }
+        if (playRaceMove(gameRules, listener))
+            return;
+        int movesMade = gameRules.getMoveNum();
+        if (agentPlayer.getWallsLeft() == 0)
+            takeShortestPath();
+        else
+            compareBetweenPaths();
+        if (gameRules.getMoveNum() > movesMade)
+            decisions.store(key, 0, 0, TranspositionTable.EXACT, gameRules.getLastMove());
+    }
+
+    /**
+     * Sets the opening book the AI plays from before it evaluates the game itself.
+     *
+     * @param book The opening book, or null to evaluate every move.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
     /**
      * Initiates the AI's move by taking the s
      * shortest path to the destination.
      */
     private void takeShortestPath() {
         List<Square> path = calculatePath(agentPlayer, opponentPlayer.getPosition());
-        makeMove(path.get(1).toString()); // Index 0 is the player's current position.
+        makeMove(Move.pawn(path.get(1).toIndex())); // Index 0 is the player's current position.
     }
 
     /**
@@ -69,7 +134,7 @@ public class AI {
      * @return The calculated path.
      */
     private ArrayList<Square> calculatePath(Player movingPlayer, Square occupiedSquare) {
-        ArrayList<Square> shortestPath = calculateBFS(getGraphOfBoard(), movingPlayer.getPosition(), movingPlayer.getDestRow());
+        ArrayList<Square> shortestPath = PathEngine.get().calculatePath(getBoard(), movingPlayer.getPosition(), movingPlayer.getDestRow());
         if(shortestPath.contains(occupiedSquare)) {
             int occupiedSquareIndex = shortestPath.indexOf(occupiedSquare);
             shortestPath.remove(occupiedSquare);
@@ -107,7 +172,7 @@ public class AI {
                     int minPathLength = Integer.MAX_VALUE;
                     for (Square move : possibleMoves) {
                         // Search for the shortest path from all the possible squares.
-                        currentPath = calculateBFS(getGraphOfBoard(), move, movingPlayer.getDestRow());
+                        currentPath = PathEngine.get().calculatePath(getBoard(), move, movingPlayer.getDestRow());
                         if (currentPath.size() < minPathLength) {
                             minPathLength = currentPath.size();
                             bestPath = currentPath;
@@ -121,6 +186,32 @@ public class AI {
         return shortestPath;
     }
 
+    /**
+     * Gets the length of the player's shortest path to its goal, counted in squares like the paths of calculatePath.
+     * The length is read from the distance fields of the board, so it doesn't account for jumping over the other player.
+     *
+     * @param player The player for whom the length is read.
+     * @return The number of squares in the path, or 0 if the player can't reach its goal.
+     */
+    private int pathLength(Player player) {
+        return getBoard().distanceToGoal(player.getPosition().toIndex(), player.getDestRow()) + 1;
+    }
+
+    /**
+     * Gets the length of the player's shortest path with a wall added, read from the wall table of the player's square.
+     * A wall that doesn't fit on the board isn't placed, like in addVirtualWall.
+     *
+     * @param player The player for whom the length is read.
+     * @param wall   The wall to add.
+     * @return The number of squares in the path with the wall, or 0 if the player can't reach its goal.
+     */
+    private int pathLength(Player player, Wall wall) {
+        int slot = wall.toSlot();
+        if (slot < 0)
+            return pathLength(player);
+        return wallEvaluator.distance(getBoard(), slot, player.getPosition().toIndex(), player.getDestRow()) + 1;
+    }
+
     /**
      * Calculates shortest paths for agent/opponent and head start for opponent and decides who's considered closer to goal.
      */
@@ -129,7 +220,10 @@ public class AI {
         ArrayList<Square> opponentPath = calculatePath(opponentPlayer, agentPlayer.getPosition());
         int opponentHeadStart = decideOnOpponentHeadStart();
         if (isOpponentCloser(agentPath.size(), opponentPath.size(), opponentHeadStart)) {
-            if(placeOffensiveWall(opponentPath, agentPath)) // A wall to block the opponent was found
+            long start = metrics.startPhase();
+            boolean placed = placeOffensiveWall(opponentPath, agentPath);
+            metrics.endPhase(AiMetrics.Phase.OFFENSIVE_WALL, start);
+            if(placed) // A wall to block the opponent was found
                 return;
         }
         checkIfOpponentHasWalls(agentPath, opponentPath);
@@ -147,7 +241,9 @@ public class AI {
             takeShortestPath();
         }
         else {
+            long start = metrics.startPhase();
             ArrayList<Square> quickPath = searchQuickPath(agentPath, opponentPath);
+            metrics.endPhase(AiMetrics.Phase.QUICK_PATH, start);
             if(quickPath != null && blockQuickPath(opponentPath, quickPath)) {
                 return;
             }
@@ -168,6 +264,7 @@ public class AI {
         int newOpponentPath, newAgentPath, distanceFromOpponent;
         int opponentPathWithBestWall = 0, agentPathWithBestWall = 0;
         int pathDifference;
+        int opponentPathLength = pathLength(opponentPlayer), agentPathLength = pathLength(agentPlayer);
         Wall bestWall = null;
 
         // Search for the wall that has minimum value for AgentBFS-OpponentBFS.
@@ -178,10 +275,8 @@ public class AI {
             increasePathWalls = getWallsBetween(opponentPath.get(i), opponentPath.get(i+1));
             for(Wall wall : increasePathWalls) {
 
-                addVirtualWall(wall);
-                newAgentPath = calculatePath(agentPlayer, opponentPlayer.getPosition()).size();
-                newOpponentPath = calculatePath(opponentPlayer, agentPlayer.getPosition()).size();
-                removeVirtualWall(wall);
+                newAgentPath = pathLength(agentPlayer, wall);
+                newOpponentPath = pathLength(opponentPlayer, wall);
                 pathDifference = newAgentPath-newOpponentPath;
 
                 distanceFromOpponent = calculateManhattanDistance(opponentPath.get(0), wall.getStartingSq());
@@ -197,13 +292,13 @@ public class AI {
         if(bestWall == null) {
             return false;
         }
-        if(opponentPathWithBestWall == opponentPath.size())
+        if(opponentPathWithBestWall == opponentPathLength)
             // Didn't change the length of the opponent's path.
             return false;
-        if(opponentPathWithBestWall - opponentPath.size() <= agentPathWithBestWall - agentPath.size())
+        if(opponentPathWithBestWall - opponentPathLength <= agentPathWithBestWall - agentPathLength)
             // Increased the path of the agent the same or more than the opponent's.
             return false;
-        makeMove(bestWall.toString());
+        makeMove(bestWall);
         return true;
     }
 
@@ -272,7 +367,7 @@ public class AI {
         removeVirtualWall(wall);
         // Check if the wall even increase the opponent's path.
         if(newOpponentPathLen.size() > opponentPathLen) {
-            makeMove(wall.toString());
+            makeMove(wall);
             return true;
         }
         return false;
@@ -350,16 +445,13 @@ public class AI {
      * @return A number which is used as offset to get the other lane.
      */
     private int getOtherLaneOffset(Square src) {
-        int index = src.toIndex();
-        List<Square>[] graph = getGraphOfBoard();
-
         Square leftLane = src.neighbor(0, -1);
         Square rightLane = src.neighbor(0, 1);
 
-        // Check which square is in the graph because the method neighbor doesn't calculate if the square exists on the board.
-        if(graph[index].contains(leftLane))
+        // Check which square is connected on the board because the method neighbor doesn't calculate if the square exists on the board.
+        if(getBoard().isConnected(src, leftLane))
             return -1;
-        if(graph[index].contains(rightLane))
+        if(getBoard().isConnected(src, rightLane))
             return 1;
         return 0;
 
@@ -373,25 +465,20 @@ public class AI {
      * @param opponentPath The path of the opponent.
      */
     private void searchForKillerWalls(ArrayList<Square> agentPath, ArrayList<Square> opponentPath) {
+        long start = metrics.startPhase();
         ArrayList<Wall> walls = new ArrayList<>();
         ArrayList<Wall> killerWalls = new ArrayList<>();
-        ArrayList<Square> pathArraySubList = new ArrayList<>();
 
         for (int i = 1; i < agentPath.size() - 1; i++) {
-
-            // Create a sub list from agentPath, from i until the end of the list.
-            List<Square> pathSubList = agentPath.subList(i, agentPath.size());
-            pathArraySubList.addAll(pathSubList);
-
-            changePosition(agentPath.get(i));
-            ArrayList<Wall> increasingPathWalls = drasticallyIncreasePath(agentPlayer, pathArraySubList, opponentPath.get(0));
+            // The agent moves along its path, then the opponent places the walls.
+            gameRules.makeMove(Move.pawn(agentPath.get(i).toIndex()));
+            ArrayList<Wall> increasingPathWalls = drasticallyIncreasePath(agentPlayer);
+            gameRules.unmakeMove();
             if (!increasingPathWalls.isEmpty()) {
                 // Add all the walls that drastically increase the path of the agent, from any square along the path.
                 walls.addAll(increasingPathWalls);
             }
-            pathArraySubList.clear();
         }
-        changePosition(agentPath.get(0));
         walls = sortWalls(walls);
 
         for (Wall wall : walls) {
@@ -400,14 +487,17 @@ public class AI {
                 killerWalls.add(wall);
             }
         }
+        metrics.endPhase(AiMetrics.Phase.KILLER_WALLS, start);
+        start = metrics.startPhase();
         boolean blockedKillerWalls = blockKillerWalls(killerWalls);
+        metrics.endPhase(AiMetrics.Phase.BLOCK_KILLER_WALLS, start);
         if(!blockedKillerWalls)
             takeShortestPath();
     }
 
     /**
      * Sort the list of walls by how much they increase the length for the player.
-     * Implements bubble sort because the list will always be small.
+     * Implements bubble sort because the list will always be small, and the lengths are read from the wall tables.
      *
      * @param walls List of walls to sort.
      * @return A list of walls sorted, from high to low.
@@ -418,12 +508,8 @@ public class AI {
             for (int j = i + 1; j < walls.size(); j++) {
                 Wall wall1 = walls.get(i);
                 Wall wall2 = walls.get(j);
-                addVirtualWall(wall1);
-                int length1 = calculatePath(agentPlayer, opponentPlayer.getPosition()).size();
-                removeVirtualWall(wall1);
-                addVirtualWall(wall2);
-                int length2 = calculatePath(agentPlayer, opponentPlayer.getPosition()).size();
-                removeVirtualWall(wall2);
+                int length1 = pathLength(agentPlayer, wall1);
+                int length2 = pathLength(agentPlayer, wall2);
 
                 if (length2 > length1) {
                     // Swap walls if wall2 has a higher impact
@@ -515,11 +601,11 @@ public class AI {
             }
         }
         if(maxBlockedWalls == 1) {
-            makeMove(blocksWorst.toString());
+            makeMove(blocksWorst);
             return true;
         }
         else if(blocksMost != null) {
-            makeMove(blocksMost.toString());
+            makeMove(blocksMost);
             return true;
         }
         return false;
@@ -548,13 +634,12 @@ public class AI {
      * @return A list of all walls that block any player from reaching their goal.
      */
     private ArrayList<Wall> getIllegalWalls() {
-        ArrayList<Wall> walls = generateAllWalls();
-        ArrayList<Wall> illegals = new ArrayList<>();
-        for(Wall wall : walls) {
-            if(gameRules.doesBlockPathToGoal(wall))
-                illegals.add(wall);
-        }
-        return illegals;
+        long[] free = new long[2], legal = new long[2];
+        getBoard().getFreeWalls(free);
+        getBoard().getLegalWalls(agentPlayer, opponentPlayer, legal);
+        free[0] &= ~legal[0];
+        free[1] &= ~legal[1];
+        return wallsOf(free);
     }
 
 
@@ -581,8 +666,8 @@ public class AI {
                 startingSq1 = prev.neighbor(0, -1); // one left
                 startingSq2 = startingSq1.neighbor(1, 0); // one up
             }
-            walls.add(new Wall(startingSq1, 'v'));
-            walls.add(new Wall(startingSq2, 'v'));
+            walls.add(Wall.of(startingSq1, 'v'));
+            walls.add(Wall.of(startingSq2, 'v'));
 
         }
         if (colDiff == 0) { // Moved vertically
@@ -594,12 +679,12 @@ public class AI {
                 startingSq1 = prev;
                 startingSq2 = startingSq1.neighbor(0, -1); // one left
             }
-            walls.add(new Wall(startingSq1, 'h'));
-            walls.add(new Wall(startingSq2, 'h'));
+            walls.add(Wall.of(startingSq1, 'h'));
+            walls.add(Wall.of(startingSq2, 'h'));
         }
         ArrayList<Wall> existsInBoard = new ArrayList<>();
         for(Wall wall: walls) {
-            if(gameRules.isValidWallSyntax(wall.toString()))
+            if(wall.toSlot() >= 0)
                 existsInBoard.add(wall);
         }
         return existsInBoard;
@@ -643,80 +728,113 @@ public class AI {
         return steps;
     }
 
-    private void changePosition(Square square) {
-        agentPlayer.setPosition(square);
-    }
-
-
     /**
-     * Places a wall on the board, called virtual because after this method the removal of that wall will be called.
+     * Places a wall on the board as a move of the player to move, called virtual because after this method the
+     * removal of that wall will be called. A wall that doesn't fit on the board isn't placed.
      *
      * @param wall The wall to place.
      */
     private void addVirtualWall(Wall wall) {
-        gameRules.addWall(wall);
-
+        int slot = wall.toSlot();
+        if (slot >= 0) {
+            gameRules.makeMove(Move.wall(slot));
+            metrics.virtualWallAdded();
+        }
     }
 
     /**
-     * Removes a wall placed in addVirtualWall.
+     * Takes back a wall placed in addVirtualWall.
      *
      * @param wall The wall to remove.
      */
     private void removeVirtualWall(Wall wall) {
-        gameRules.removeWall(wall);
+        if (wall.toSlot() >= 0) {
+            gameRules.unmakeMove();
+            metrics.virtualWallRemoved();
+        }
     }
 
 
     /**
      * Makes a move and updates the view.
      *
-     * @param move The move to make.
+     * @param move The code of the move to make (see {@link Move}).
      */
-    private void makeMove(String move) {
-        if (move != null) {
-            int turn = gameRules.getTurn();
-            if (move.length() == 2) {
-                Square sq = new Square(move);
-                if (gameRules.commitMove(sq.toString())) {
-                    // Valid.
-                    viewUpdater.updatePawnPosition(sq.getRow(), sq.getCol(), turn);
-                }
-                else
-                    // Invalid.
-                    viewUpdater.updatePawnPosition(-1, -1, turn);
-
-            } else if (move.length() == 3) {
-                Wall wall = new Wall(move);
-                if (gameRules.commitMove(wall.toString())) {
-                    int row = wall.getStartingSq().getRow() + 1;
-                    int col = wall.getStartingSq().getCol() + 1;
-                    if (move.charAt(2) == 'h') // Horizontal wall.
-                        viewUpdater.placeHorizontalWalls(row, col, turn);
-                    else if (move.charAt(2) == 'v') // Vertical wall.
-                        viewUpdater.placeVerticalWall(row, col, turn);
-                }
-            }
+    private void makeMove(int move) {
+        playMove(gameRules, listener, move);
+    }
+
+    /**
+     * Places a wall and updates the view.
+     *
+     * @param wall The wall to place.
+     */
+    private void makeMove(Wall wall) {
+        int slot = wall.toSlot();
+        if (slot >= 0)
+            makeMove(Move.wall(slot));
+    }
+
+    /**
+     * Commits a move to the game rules and tells the listener, shared by every agent and by the game engine.
+     *
+     * @param gameRules The game rules to commit the move to.
+     * @param listener  The listener of the move.
+     * @param move      The code of the move to make (see {@link Move}).
+     * @return True if the move was legal and committed, false otherwise.
+     */
+    static boolean playMove(GameRules gameRules, GameListener listener, int move) {
+        if (move == Move.NONE)
+            return false;
+        int turn = gameRules.getTurn();
+        if (!gameRules.commitMove(move)) {
+            if (!Move.isWall(move))
+                listener.updatePawnPosition(-1, -1, turn);
+            return false;
         }
+        if (!Move.isWall(move))
+            listener.updatePawnPosition(Move.row(move), Move.col(move), turn);
+        else if (Move.isHorizontal(move))
+            listener.placeHorizontalWalls(Move.row(move) + 1, Move.col(move) + 1, turn);
+        else
+            listener.placeVerticalWall(Move.row(move) + 1, Move.col(move) + 1, turn);
+        return true;
+    }
+
+    /**
+     * Plays the perfect move of a race, a game where neither player has walls left (see {@link RaceTablebase}).
+     * The move wins as fast as possible, loses as slowly as possible or keeps the draw, jumps included.
+     *
+     * @param gameRules The game to play the move in.
+     * @param listener  The listener of the move.
+     * @return True if the game is a race and the move was played, false otherwise.
+     */
+    static boolean playRaceMove(GameRules gameRules, GameListener listener) {
+        Player first = gameRules.getPlayer(0), second = gameRules.getPlayer(1);
+        if (first.getWallsLeft() != 0 || second.getWallsLeft() != 0)
+            return false;
+        RaceTablebase.Table race = RaceTablebase.get(gameRules.getBoard(), first.getDestRow(), second.getDestRow());
+        int square = race.getBestMove(first.getPosition().toIndex(), second.getPosition().toIndex(), gameRules.getTurn());
+        return square >= 0 && playMove(gameRules, listener, Move.pawn(square));
     }
 
     /**
-     * Sets the graph representing the game board.
+     * Sets the game board.
      *
-     * @param graphOfBoard The graph representing the game board.
+     * @param board The game board.
      */
-    private void setGraphOfBoard(List<Square>[] graphOfBoard) {
-        this.graphOfBoard = graphOfBoard;
+    private void setBoard(GameBoard board) {
+        this.board = board;
     }
 
 
     /**
-     * Gets the graph representing the game board.
+     * Gets the game board.
      *
-     * @return The graph representing the game board.
+     * @return The game board.
      */
-    private List<Square>[] getGraphOfBoard() {
-        return this.graphOfBoard;
+    private GameBoard getBoard() {
+        return this.board;
     }
 
     /**
@@ -726,39 +844,26 @@ public class AI {
      * @return An ArrayList of valid pawn moves.
      */
     private ArrayList<Square> generatePawnMoves(Square from, Square occupiedSquare) {
-        ArrayList<Square> validMoves = new ArrayList<>();
-        for (Square neighbor : from.neighbourhood(2)) {
-            if (!neighbor.equals(occupiedSquare) && gameRules.isValidTraversal(from, neighbor, occupiedSquare)) {
-                validMoves.add(neighbor);
-            }
-        }
+        int count = MoveGenerator.generatePawnMoves(getBoard(), from.toIndex(), occupiedSquare.toIndex(), pawnMoves);
+        // In order of the squares, the order the path choices rely on.
+        Arrays.sort(pawnMoves, 0, count);
+        ArrayList<Square> validMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            validMoves.add(Square.of(Move.square(pawnMoves[i])));
         return validMoves;
     }
 
     /**
-     * Generates valid wall moves on the game board.
+     * Converts a mask of wall slots to a list of walls, ordered by slot.
      *
-     * @return An ArrayList of valid wall moves.
+     * @param slots A mask of two longs with the slots of the walls.
+     * @return An ArrayList of the walls in the mask.
      */
-    private ArrayList<Wall> generateAllWalls() {
+    private ArrayList<Wall> wallsOf(long[] slots) {
         ArrayList<Wall> walls = new ArrayList<>();
-        for (int row = 0; row < BOARD_DIMENSION - 1; row++) {
-            for (int col = 0; col < BOARD_DIMENSION - 1; col++) {
-                Square sq = new Square(row, col);
-                Wall wall = new Wall(sq, Wall.Orientation.HORIZONTAL);
-                if(!gameRules.doesWallCrossOthers(wall)) {
-                    walls.add(wall);
-                }
-            }
-        }
-        for (int row = 1; row < BOARD_DIMENSION; row++) {
-            for (int col = 0; col < BOARD_DIMENSION - 1; col++) {
-                Square sq = new Square(row, col);
-                Wall wall = new Wall(sq, Wall.Orientation.VERTICAL);
-                if(!gameRules.doesWallCrossOthers(wall)) {
-                    walls.add(wall);
-                }
-            }
+        for (int slot = 0; slot < Wall.WALL_SLOTS; slot++) {
+            if ((slots[slot >>> 6] & (1L << slot)) != 0)
+                walls.add(Wall.fromSlot(slot));
         }
         return walls;
     }
@@ -767,22 +872,16 @@ public class AI {
      * Calculates the walls that increase a player's path by 4 or more moves.
      *
      * @param player Player for which to calculate.
-     * @param playerPath Player's path.
-     * @param occupiedSquare Square that is occupied by the other player.
      * @return A list of all walls that increase the player's path by 4 or more moves.
      */
-    private ArrayList<Wall> drasticallyIncreasePath(Player player, ArrayList<Square> playerPath, Square occupiedSquare) {
-        ArrayList<Wall> possibleWalls = generateAllWalls();
+    private ArrayList<Wall> drasticallyIncreasePath(Player player) {
+        long[] legal = new long[2];
+        gameRules.getLegalWalls(legal);
         ArrayList<Wall> wallsToIncreasePath = new ArrayList<>();
-        ArrayList<Square> newPlayerPathLength;
-        for(Wall wall: possibleWalls) {
-            if(gameRules.isValidWallPlacement(wall)) {
-                addVirtualWall(wall);
-                newPlayerPathLength = calculatePath(player, occupiedSquare);
-                if(newPlayerPathLength.size() >= playerPath.size() + 4) {
-                    wallsToIncreasePath.add(wall);
-                }
-                removeVirtualWall(wall);
+        int playerPathLength = pathLength(player);
+        for(Wall wall: wallsOf(legal)) {
+            if(pathLength(player, wall) >= playerPathLength + 4) {
+                wallsToIncreasePath.add(wall);
             }
         }
         return wallsToIncreasePath;
@@ -0,0 +1,26 @@
+package Controller;
+
+/**
+ * A player whose moves are decided by the computer.
+ * An agent that holds threads or other resources releases them when it's closed, at the end of its game.
+ */
+public interface Agent extends AutoCloseable {
+    /**
+     * Decides on a move and plays it, if it's the agent's turn.
+     */
+    void AiTurn();
+
+    /**
+     * Sets the opening book the agent plays from before it decides on a move itself.
+     *
+     * @param book The opening book, or null to decide on every move.
+     */
+    void setOpeningBook(OpeningBook book);
+
+    /**
+     * Releases the resources of the agent, after which it must not play any more turns.
+     */
+    @Override
+    default void close() {
+    }
+}
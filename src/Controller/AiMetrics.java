@@ -0,0 +1,323 @@
+package Controller;
+
+import Model.GameBoard;
+import Utilities.PathEngine;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects what the agents spend their turns on: breadth-first searches, wall legality checks, virtual walls,
+ * searched nodes and the time of every decision phase of {@link AI}.
+ * <p>
+ * An agent records its own turn in a {@link Turn}, which only reads a few counters that the path engine and the
+ * board keep anyway, so recording costs a handful of field and clock reads and one summary line per turn.
+ * At the end of the turn the summary is added to the totals and histograms of all the agents, which are exported
+ * through JMX as {@value #OBJECT_NAME}, and logged as one line of key=value pairs at level FINE.
+ */
+public final class AiMetrics implements AiMetricsMBean {
+    /**
+     * The JMX name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "Quoridor:type=AiMetrics";
+
+    /**
+     * The decision phases of {@link AI}, named after the methods that run them.
+     */
+    public enum Phase {
+        OFFENSIVE_WALL("placeOffensiveWall"),
+        QUICK_PATH("searchQuickPath"),
+        KILLER_WALLS("searchForKillerWalls"),
+        BLOCK_KILLER_WALLS("blockKillerWalls");
+
+        private final String methodName;
+
+        Phase(String methodName) {
+            this.methodName = methodName;
+        }
+
+        /**
+         * Gets the name of the phase in the metrics and the log.
+         *
+         * @return The name of the method that runs the phase.
+         */
+        public String getMethodName() {
+            return methodName;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(AiMetrics.class.getName());
+    private static final Phase[] PHASES = Phase.values();
+    private static final int BUCKETS = 32;
+    private static final AiMetrics INSTANCE = new AiMetrics();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            LOGGER.log(Level.WARNING, "The AI metrics aren't exported through JMX", e);
+        }
+    }
+
+    private long turns;
+    private long searches;
+    private long legalityChecks;
+    private long virtualWallsAdded;
+    private long virtualWallsRemoved;
+    private long nodes;
+    private long turnNanos;
+    private long maxTurnNanos;
+    private final long[] turnHistogram = new long[BUCKETS];
+    private final long[] phaseNanos = new long[PHASES.length];
+    private final long[] phaseCounts = new long[PHASES.length];
+    private final long[][] phaseHistograms = new long[PHASES.length][BUCKETS];
+    private String lastTurn = "";
+
+    private AiMetrics() {
+    }
+
+    /**
+     * Gets the metrics of all the agents.
+     *
+     * @return The metrics, registered with the platform MBean server.
+     */
+    public static AiMetrics get() {
+        return INSTANCE;
+    }
+
+    private synchronized void record(Turn turn, String summary) {
+        turns++;
+        searches += turn.searches;
+        legalityChecks += turn.legalityChecks;
+        virtualWallsAdded += turn.virtualWallsAdded;
+        virtualWallsRemoved += turn.virtualWallsRemoved;
+        nodes += turn.nodes;
+        turnNanos += turn.nanos;
+        maxTurnNanos = Math.max(maxTurnNanos, turn.nanos);
+        turnHistogram[bucket(turn.nanos)]++;
+        for (int i = 0; i < PHASES.length; i++) {
+            if (turn.phaseCounts[i] == 0)
+                continue;
+            phaseNanos[i] += turn.phaseNanos[i];
+            phaseCounts[i] += turn.phaseCounts[i];
+            phaseHistograms[i][bucket(turn.phaseNanos[i])]++;
+        }
+        lastTurn = summary;
+    }
+
+    private static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return micros < 2 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public synchronized long getTurnCount() {
+        return turns;
+    }
+
+    public synchronized long getSearchCount() {
+        return searches;
+    }
+
+    public synchronized long getLegalityCheckCount() {
+        return legalityChecks;
+    }
+
+    public synchronized long getVirtualWallsAdded() {
+        return virtualWallsAdded;
+    }
+
+    public synchronized long getVirtualWallsRemoved() {
+        return virtualWallsRemoved;
+    }
+
+    public synchronized long getNodesSearched() {
+        return nodes;
+    }
+
+    public synchronized double getMeanTurnMillis() {
+        return turns == 0 ? 0 : millis(turnNanos) / turns;
+    }
+
+    public synchronized double getMaxTurnMillis() {
+        return millis(maxTurnNanos);
+    }
+
+    public synchronized long[] getTurnHistogram() {
+        return turnHistogram.clone();
+    }
+
+    public String[] getPhaseNames() {
+        String[] names = new String[PHASES.length];
+        for (int i = 0; i < PHASES.length; i++)
+            names[i] = PHASES[i].getMethodName();
+        return names;
+    }
+
+    public synchronized double[] getPhaseMillis() {
+        double[] phaseMillis = new double[PHASES.length];
+        for (int i = 0; i < PHASES.length; i++)
+            phaseMillis[i] = millis(phaseNanos[i]);
+        return phaseMillis;
+    }
+
+    public synchronized long[] getPhaseCounts() {
+        return phaseCounts.clone();
+    }
+
+    public synchronized long[] getPhaseHistogram(String phase) {
+        for (int i = 0; i < PHASES.length; i++)
+            if (PHASES[i].getMethodName().equals(phase))
+                return phaseHistograms[i].clone();
+        throw new IllegalArgumentException("Unknown phase: " + phase);
+    }
+
+    public synchronized String getLastTurn() {
+        return lastTurn;
+    }
+
+    public synchronized void reset() {
+        turns = searches = legalityChecks = virtualWallsAdded = virtualWallsRemoved = nodes = turnNanos = maxTurnNanos = 0;
+        Arrays.fill(turnHistogram, 0);
+        Arrays.fill(phaseNanos, 0);
+        Arrays.fill(phaseCounts, 0);
+        for (long[] histogram : phaseHistograms)
+            Arrays.fill(histogram, 0);
+        lastTurn = "";
+    }
+
+    /**
+     * The record of the turns of one agent, reused from turn to turn. A turn is recorded on the thread that plays it:
+     * the searches of the path engine are read from that thread's engine, and searches of other threads,
+     * e.g. the workers of a parallel search, are only counted through the nodes they report.
+     */
+    public static final class Turn {
+        private final String agent;
+        private final int id;
+        private GameBoard board;
+        private long start;
+        private long engineSearchesAtStart;
+        private long boardSearchesAtStart;
+        private long legalityChecksAtStart;
+
+        private long nanos;
+        private long searches;
+        private long legalityChecks;
+        private long virtualWallsAdded;
+        private long virtualWallsRemoved;
+        private long nodes;
+        private final long[] phaseNanos = new long[PHASES.length];
+        private final int[] phaseCounts = new int[PHASES.length];
+
+        /**
+         * Constructs the record of an agent's turns.
+         *
+         * @param agent The name of the agent in the log.
+         * @param id    The ID of the agent's player.
+         */
+        public Turn(String agent, int id) {
+            this.agent = agent;
+            this.id = id;
+        }
+
+        /**
+         * Starts recording a turn.
+         *
+         * @param board The board the agent decides on.
+         */
+        public void begin(GameBoard board) {
+            this.board = board;
+            virtualWallsAdded = virtualWallsRemoved = nodes = 0;
+            Arrays.fill(phaseNanos, 0);
+            Arrays.fill(phaseCounts, 0);
+            engineSearchesAtStart = PathEngine.get().getSearchCount();
+            boardSearchesAtStart = board.getSearchCount();
+            legalityChecksAtStart = board.getLegalityCheckCount();
+            start = System.nanoTime();
+        }
+
+        /**
+         * Starts timing a phase.
+         *
+         * @return The start time to pass to {@link #endPhase}.
+         */
+        public long startPhase() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Stops timing a phase.
+         *
+         * @param phase The phase.
+         * @param start The time returned by {@link #startPhase()}.
+         */
+        public void endPhase(Phase phase, long start) {
+            phaseNanos[phase.ordinal()] += System.nanoTime() - start;
+            phaseCounts[phase.ordinal()]++;
+        }
+
+        /**
+         * Counts a wall placed virtually.
+         */
+        public void virtualWallAdded() {
+            virtualWallsAdded++;
+        }
+
+        /**
+         * Counts a virtual wall taken back.
+         */
+        public void virtualWallRemoved() {
+            virtualWallsRemoved++;
+        }
+
+        /**
+         * Counts searched nodes.
+         *
+         * @param count The number of nodes.
+         */
+        public void nodesSearched(long count) {
+            nodes += count;
+        }
+
+        /**
+         * Stops recording the turn, adds it to the metrics of all the agents and logs it.
+         *
+         * @param moveNum The number of moves made in the game after the turn.
+         */
+        public void end(int moveNum) {
+            nanos = System.nanoTime() - start;
+            searches = PathEngine.get().getSearchCount() - engineSearchesAtStart + board.getSearchCount() - boardSearchesAtStart;
+            legalityChecks = board.getLegalityCheckCount() - legalityChecksAtStart;
+            board = null;
+            String summary = summary(moveNum);
+            INSTANCE.record(this, summary);
+            if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.fine(summary);
+        }
+
+        private String summary(int moveNum) {
+            StringBuilder line = new StringBuilder("turn agent=").append(agent)
+                    .append(" player=").append(id)
+                    .append(" move=").append(moveNum)
+                    .append(" millis=").append(String.format(Locale.ROOT, "%.3f", millis(nanos)))
+                    .append(" searches=").append(searches)
+                    .append(" legalityChecks=").append(legalityChecks)
+                    .append(" virtualWallsAdded=").append(virtualWallsAdded)
+                    .append(" virtualWallsRemoved=").append(virtualWallsRemoved)
+                    .append(" nodes=").append(nodes);
+            for (Phase phase : PHASES)
+                if (phaseCounts[phase.ordinal()] > 0)
+                    line.append(' ').append(phase.getMethodName()).append("Millis=")
+                            .append(String.format(Locale.ROOT, "%.3f", millis(phaseNanos[phase.ordinal()])));
+            return line.toString();
+        }
+    }
+}
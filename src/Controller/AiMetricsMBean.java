@@ -0,0 +1,112 @@
+package Controller;
+
+/**
+ * The management interface of {@link AiMetrics}, registered as {@value AiMetrics#OBJECT_NAME}.
+ * Histograms count turns or phases by duration: bucket i holds the durations from 2^i up to 2^(i+1) microseconds,
+ * bucket 0 everything below 2 microseconds and the last bucket everything above.
+ */
+public interface AiMetricsMBean {
+    /**
+     * Gets the number of recorded turns.
+     *
+     * @return The number of turns.
+     */
+    long getTurnCount();
+
+    /**
+     * Gets the number of breadth-first searches of all the recorded turns, full and incremental.
+     *
+     * @return The number of searches.
+     */
+    long getSearchCount();
+
+    /**
+     * Gets the number of wall legality checks of all the recorded turns.
+     *
+     * @return The number of legality checks.
+     */
+    long getLegalityCheckCount();
+
+    /**
+     * Gets the number of walls placed virtually to try them out.
+     *
+     * @return The number of virtual walls added.
+     */
+    long getVirtualWallsAdded();
+
+    /**
+     * Gets the number of virtual walls taken back.
+     *
+     * @return The number of virtual walls removed.
+     */
+    long getVirtualWallsRemoved();
+
+    /**
+     * Gets the number of nodes that the searching agents visited.
+     *
+     * @return The number of nodes searched.
+     */
+    long getNodesSearched();
+
+    /**
+     * Gets the mean duration of a turn.
+     *
+     * @return The mean turn time in milliseconds.
+     */
+    double getMeanTurnMillis();
+
+    /**
+     * Gets the duration of the longest turn.
+     *
+     * @return The longest turn time in milliseconds.
+     */
+    double getMaxTurnMillis();
+
+    /**
+     * Gets the histogram of the turn durations.
+     *
+     * @return The number of turns per duration bucket.
+     */
+    long[] getTurnHistogram();
+
+    /**
+     * Gets the names of the decision phases, in the order of {@link #getPhaseMillis()} and {@link #getPhaseCounts()}.
+     *
+     * @return The phase names.
+     */
+    String[] getPhaseNames();
+
+    /**
+     * Gets the total time spent in every decision phase.
+     *
+     * @return The time per phase in milliseconds.
+     */
+    double[] getPhaseMillis();
+
+    /**
+     * Gets the number of times every decision phase ran.
+     *
+     * @return The number of runs per phase.
+     */
+    long[] getPhaseCounts();
+
+    /**
+     * Gets the histogram of the durations of a decision phase.
+     *
+     * @param phase The name of the phase, one of {@link #getPhaseNames()}.
+     * @return The number of runs per duration bucket.
+     */
+    long[] getPhaseHistogram(String phase);
+
+    /**
+     * Gets the summary of the last recorded turn, in the format of the log line.
+     *
+     * @return The summary, or an empty string before the first turn.
+     */
+    String getLastTurn();
+
+    /**
+     * Clears all the recorded turns.
+     */
+    void reset();
+}
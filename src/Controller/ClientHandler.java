@@ -1,5 +1,7 @@
 package Controller;
 
+import Model.Move;
+import Model.MoveGenerator;
 import Model.Player;
 import Model.Square;
 import View.pieces.Pawn;
@@ -17,7 +19,8 @@ import static Utilities.Constants.*;
 public class ClientHandler {
     private final GameRules gameRules;
     private final ViewUpdater viewUpdater;
-    private AI ai;
+    private final int[] reachableTiles = new int[MoveGenerator.MAX_PAWN_MOVES];
+    private Agent ai;
     private boolean isHumanTurn;
 
     /**
@@ -57,11 +60,9 @@ public class ClientHandler {
         Square playerSquare = gameRules.getPlayer(PawnType.HUMAN.ordinal()).getPosition();
         Square occupiedSquare = gameRules.getPlayer(PawnType.AI.ordinal()).getPosition();
 
-        for (Square sq : playerSquare.neighbourhood(2)) {
-            if (gameRules.isValidTraversal(playerSquare, sq, occupiedSquare)) {
-                viewUpdater.showTile(sq.toString());
-            }
-        }
+        int count = MoveGenerator.generatePawnMoves(gameRules.getBoard(), playerSquare.toIndex(), occupiedSquare.toIndex(), reachableTiles);
+        for (int i = 0; i < count; i++)
+            viewUpdater.showTile(Move.toString(reachableTiles[i]));
     }
 
     public void hideReachableTiles() {
@@ -85,7 +86,7 @@ public class ClientHandler {
         // Convert pixel positions to board coordinates
         int newCol = pixelToBoard(xPixel);
         int newRow = pixelToBoard(yPixel);
-        Square squareToGo = new Square(newRow, newCol);
+        Square squareToGo = Square.of(newRow, newCol);
         int turn = gameRules.getTurn();
         if (gameRules.commitMove(squareToGo.toString())) {
             viewUpdater.updatePawnPosition(newRow, newCol, turn);
@@ -236,6 +237,22 @@ public class ClientHandler {
         }
     }
 
+    /**
+     * Sets the log that the game is appended to once it ends (see {@link GameRules#setGameLog}).
+     *
+     * @param gameLog The game log, or null to not log the game.
+     */
+    public void setGameLog(GameLog gameLog) {
+        gameRules.setGameLog(gameLog);
+    }
+
+    /**
+     * Ends the game when the view is closed, appending it to the game log without a winner if it wasn't finished.
+     */
+    public void endGame() {
+        gameRules.endGame();
+    }
+
     /**
      * Calls the AI if it's the starting player, otherwise does nothing.
      */
@@ -0,0 +1,202 @@
+package Controller;
+
+import Model.GameState;
+import Model.Move;
+import Model.MoveGenerator;
+
+/**
+ * Runs a game without a view: moves are applied and queried through this class, and the AI is asked for its moves
+ * directly. Nothing here depends on the GUI, so any number of games can run side by side in one process.
+ * Events of the game are passed to an optional {@link GameListener}.
+ */
+public class GameEngine {
+    /**
+     * The ID of the player that starts at e1 and plays towards the last row.
+     */
+    public static final int HUMAN_PLAYER = 0;
+    /**
+     * The ID of the player that starts at e9 and plays towards the first row.
+     */
+    public static final int AI_PLAYER = 1;
+
+    private final GameRules gameRules;
+    private final GameListener listener;
+    private final Agent[] agents = new Agent[2];
+    private final long[] legalWalls = new long[2];
+
+    /**
+     * Creates a new game without a listener.
+     *
+     * @param startingPlayer The ID of the player that moves first.
+     */
+    public GameEngine(int startingPlayer) {
+        this(startingPlayer, GameListener.NONE);
+    }
+
+    /**
+     * Creates a new game.
+     *
+     * @param startingPlayer The ID of the player that moves first.
+     * @param listener       The listener of the game's events.
+     */
+    public GameEngine(int startingPlayer, GameListener listener) {
+        this.gameRules = new GameRules(startingPlayer);
+        this.listener = listener;
+        gameRules.addPlayerData("HUMAN", "e1", HUMAN_PLAYER);
+        gameRules.addPlayerData("AI", "e9", AI_PLAYER);
+    }
+
+    /**
+     * Sets the agent that plays for a player when {@link #playAgentTurn()} is called.
+     * A player without an agent is played by the heuristic {@link AI}.
+     *
+     * @param id    The ID of the player.
+     * @param agent The agent, created for this engine's game rules.
+     */
+    public void setAgent(int id, Agent agent) {
+        agents[id] = agent;
+    }
+
+    /**
+     * Sets the log that the game is appended to when a player wins or the game is ended (see {@link GameRules#setGameLog}).
+     *
+     * @param gameLog The game log, or null to not log the game.
+     */
+    public void setGameLog(GameLog gameLog) {
+        gameRules.setGameLog(gameLog);
+    }
+
+    /**
+     * Ends the game, appending it to the game log without a winner if it wasn't finished.
+     */
+    public void endGame() {
+        gameRules.endGame();
+    }
+
+    /**
+     * Applies a move of the player to move.
+     *
+     * @param move The move, e.g. "e2" or "e3h".
+     * @return True if the move is legal and was applied, false otherwise.
+     */
+    public boolean applyMove(String move) {
+        return applyMove(Move.fromString(move));
+    }
+
+    /**
+     * Applies a move of the player to move, given by its move code.
+     *
+     * @param move The code of the move (see {@link Move}).
+     * @return True if the move is legal and was applied, false otherwise.
+     */
+    public boolean applyMove(int move) {
+        if (gameRules.gameOver() || move == Move.NONE)
+            return false;
+        boolean applied = AI.playMove(gameRules, listener, move);
+        if (applied)
+            notifyWinner();
+        return applied;
+    }
+
+    /**
+     * Lets the agent of the player to move decide on a move and apply it.
+     *
+     * @return The move that was applied, or null if the game is over or the agent didn't move.
+     */
+    public String playAgentTurn() {
+        if (gameRules.gameOver())
+            return null;
+        int turn = gameRules.getTurn();
+        if (agents[turn] == null)
+            agents[turn] = new AI(listener, gameRules, turn);
+        int movesMade = gameRules.getMoveNum();
+        agents[turn].AiTurn();
+        if (gameRules.getMoveNum() == movesMade)
+            return null;
+        notifyWinner();
+        return Move.toString(gameRules.getLastMove());
+    }
+
+    /**
+     * Fills a buffer with every legal move of the player to move, as move codes of {@link Move}.
+     *
+     * @param moves A buffer with room for {@link Move#COUNT} moves.
+     * @return The number of legal moves, 0 if the game is over.
+     */
+    public int getLegalMoves(int[] moves) {
+        if (gameRules.gameOver())
+            return 0;
+        int count = MoveGenerator.generatePawnMoves(gameRules.getBoard(),
+                gameRules.getCurrentPlayerPos().toIndex(), gameRules.getOtherPlayerPos().toIndex(), moves);
+        gameRules.getLegalWalls(legalWalls);
+        for (int i = 0; i < 2; i++) {
+            long walls = legalWalls[i];
+            while (walls != 0) {
+                moves[count++] = Move.wall((i << 6) + Long.numberOfTrailingZeros(walls));
+                walls &= walls - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the game is over.
+     *
+     * @return True if a player reached their goal, false otherwise.
+     */
+    public boolean isGameOver() {
+        return gameRules.gameOver();
+    }
+
+    /**
+     * Gets the winner of the game.
+     *
+     * @return The ID of the player who reached their goal, or -1 if the game isn't over.
+     */
+    public int getWinner() {
+        return gameRules.getWinner();
+    }
+
+    /**
+     * Gets the ID of the player to move.
+     *
+     * @return The ID of the player to move.
+     */
+    public int getTurn() {
+        return gameRules.getTurn();
+    }
+
+    /**
+     * Gets the state after the last applied move, which any thread can read while the game goes on.
+     *
+     * @return An immutable snapshot of the game.
+     */
+    public GameState getState() {
+        return gameRules.getCommittedState();
+    }
+
+    /**
+     * Gets the game rules of the game, to create agents for it or to query it further.
+     *
+     * @return The game rules.
+     */
+    public GameRules getGameRules() {
+        return gameRules;
+    }
+
+    /**
+     * Gets the listener of the game's events.
+     *
+     * @return The listener.
+     */
+    public GameListener getListener() {
+        return listener;
+    }
+
+    private void notifyWinner() {
+        int winner = getWinner();
+        if (winner < 0)
+            return;
+        listener.setWinner(winner);
+    }
+}
@@ -0,0 +1,53 @@
+package Controller;
+
+/**
+ * Receives the events of a game, e.g. to show them on a view.
+ * Every method does nothing by default, so a listener only overrides the events it needs,
+ * and a game without a view uses {@link #NONE}.
+ * Wall coordinates are the ones of the view: the row and column of the wall's first piece, counted from 1.
+ */
+public interface GameListener {
+    /**
+     * A listener that ignores every event.
+     */
+    GameListener NONE = new GameListener() {
+    };
+
+    /**
+     * Called when a horizontal wall was placed.
+     *
+     * @param row        The row of the wall.
+     * @param col        The column of the wall.
+     * @param playerTurn The player who placed the wall.
+     */
+    default void placeHorizontalWalls(int row, int col, int playerTurn) {
+    }
+
+    /**
+     * Called when a vertical wall was placed.
+     *
+     * @param row        The row of the wall.
+     * @param col        The column of the wall.
+     * @param playerTurn The player who placed the wall.
+     */
+    default void placeVerticalWall(int row, int col, int playerTurn) {
+    }
+
+    /**
+     * Called when a pawn moved, or failed to move.
+     *
+     * @param row        The new row of the pawn, or -1 if the move was invalid.
+     * @param col        The new column of the pawn, or -1 if the move was invalid.
+     * @param playerTurn The player who moved.
+     */
+    default void updatePawnPosition(int row, int col, int playerTurn) {
+    }
+
+    /**
+     * Called when a player won the game.
+     *
+     * @param playerTurn The ID of the winner.
+     */
+    default void setWinner(int playerTurn) {
+    }
+}
@@ -0,0 +1,377 @@
+package Controller;
+
+import Model.Move;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An append-only file of played games, written through a memory mapping.
+ * <p>
+ * The file starts with a magic number and a version, followed by one record per game:
+ * the length of the record's body as a varint, then the body: a byte with the starting player (bit 0) and the
+ * winner plus one (bits 1-2), the number of moves as a varint and every move code (see {@link Move}) as a varint.
+ * A move takes one or two bytes, so a game of 60 moves takes about 100 bytes.
+ * The file grows in chunks and the unused tail is zeros, so a record of length 0 marks the end of the games.
+ * A game is only visible to readers once its record is complete, and a writer that crashed leaves at most one
+ * partial record, which is overwritten by the next writer.
+ */
+public class GameLog implements Closeable {
+    private static final int MAGIC = 0x51474C47; // "QGLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int MIN_CAPACITY = 1 << 20;
+    private static final int MAX_GROWTH = 1 << 26;
+    // The longest a varint of an int can be.
+    private static final int MAX_VARINT = 5;
+    // No record holds this many zero bytes in a row.
+    private static final int CLEAR_RUN = 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long games;
+    private byte[] scratch = new byte[256];
+    private final byte[] prefix = new byte[MAX_VARINT];
+
+    private GameLog(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a game log for appending, creating the file if it doesn't exist.
+     *
+     * @param file The path of the log.
+     * @return The open log, positioned after its last game.
+     * @throws IOException If the file can't be opened or isn't a game log.
+     */
+    public static GameLog open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        GameLog log = new GameLog(channel);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("The game log is too large to append to: " + file);
+            log.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, MIN_CAPACITY));
+            if (size == 0) {
+                log.buffer.putInt(MAGIC).putInt(VERSION);
+            } else {
+                checkHeader(log.buffer, file);
+                log.skipGames();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Moves past the complete records and clears what a crashed writer may have left after them.
+     */
+    private void skipGames() {
+        int end = buffer.position();
+        while (buffer.remaining() >= MAX_VARINT) {
+            int length = readVarint(buffer);
+            if (length <= 0 || length > buffer.remaining())
+                break;
+            buffer.position(buffer.position() + length);
+            end = buffer.position();
+            games++;
+        }
+        // The body of a partial record has no length yet, but it would be read as records once a shorter record
+        // is written before it, so the bytes are cleared up to a long run of zeros.
+        int zeros = 0;
+        for (int i = end; i < buffer.limit() && zeros < CLEAR_RUN; i++) {
+            if (buffer.get(i) == 0) {
+                zeros++;
+            } else {
+                buffer.put(i, (byte) 0);
+                zeros = 0;
+            }
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Appends the moves of a game.
+     *
+     * @param gameRules The game to append.
+     * @param winner    The ID of the winner, or -1 if the game wasn't finished.
+     * @throws IOException If the file can't grow.
+     */
+    public void append(GameRules gameRules, int winner) throws IOException {
+        int count = gameRules.getMoveNum();
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++)
+            moves[i] = gameRules.getMove(i);
+        append(gameRules.getStartingPlayer(), winner, moves, count);
+    }
+
+    /**
+     * Appends the record of a game.
+     *
+     * @param startingPlayer The ID of the player that moved first.
+     * @param winner         The ID of the winner, or -1 if the game wasn't finished.
+     * @param moves          The move codes of the game, in order.
+     * @param count          The number of moves.
+     * @throws IOException If the file can't grow.
+     */
+    public synchronized void append(int startingPlayer, int winner, int[] moves, int count) throws IOException {
+        if (scratch.length < 1 + MAX_VARINT + count * MAX_VARINT)
+            scratch = new byte[1 + MAX_VARINT + count * MAX_VARINT];
+        int length = 0;
+        scratch[length++] = (byte) (startingPlayer | (winner + 1) << 1);
+        length = writeVarint(scratch, length, count);
+        for (int i = 0; i < count; i++)
+            length = writeVarint(scratch, length, moves[i]);
+
+        ensureCapacity(MAX_VARINT + length + MAX_VARINT);
+        // The body goes first and the length last, so a reader never sees the length of a record that isn't complete.
+        // The length is written from its last byte to its first, so until the first byte lands the record reads as 0,
+        // the end of the games, rather than as a shorter length.
+        int start = buffer.position();
+        int prefixLength = writeVarint(prefix, 0, length);
+        buffer.position(start + prefixLength);
+        buffer.put(scratch, 0, length);
+        int end = buffer.position();
+        for (int i = prefixLength - 1; i >= 0; i--)
+            buffer.put(start + i, prefix[i]);
+        buffer.position(end);
+        games++;
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (buffer.remaining() >= needed)
+            return;
+        long capacity = buffer.capacity() + Math.max(needed, Math.min(buffer.capacity(), MAX_GROWTH));
+        if (capacity > Integer.MAX_VALUE)
+            throw new IOException("The game log is full");
+        int position = buffer.position();
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.position(position);
+    }
+
+    /**
+     * Gets the number of games in the log.
+     *
+     * @return The number of games.
+     */
+    public synchronized long getGameCount() {
+        return games;
+    }
+
+    /**
+     * Writes the appended games to the disk.
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Writes the appended games to the disk and closes the file.
+     *
+     * @throws IOException If the file can't be closed.
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+            throw new IOException("Not a game log: " + file);
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported game log version " + version + ": " + file);
+    }
+
+    private static int writeVarint(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Reads a varint.
+     *
+     * @return The value, or -1 if the bytes aren't a varint of an int.
+     */
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the games of a log one after another. The moves of the current game are kept in a buffer that is reused
+     * for every game, so scanning a log allocates nothing per game.
+     */
+    public static class Reader implements Closeable {
+        // The size of the part of the file that is mapped at once.
+        private static final long WINDOW = 1L << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private int startingPlayer;
+        private int winner;
+        private int moveCount;
+        private int[] moves = new int[256];
+
+        /**
+         * Opens a log for reading.
+         *
+         * @param file The path of the log.
+         * @throws IOException If the file can't be opened or isn't a game log.
+         */
+        public Reader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                this.size = channel.size();
+                map(0);
+                checkHeader(window, file);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+        }
+
+        /**
+         * Moves to the next game of the log.
+         *
+         * @return True if there is a next game, false at the end of the log.
+         * @throws IOException If the file can't be read.
+         */
+        public boolean next() throws IOException {
+            if (window.remaining() < MAX_VARINT && windowStart + window.limit() < size)
+                map(windowStart + window.position());
+            if (window.remaining() == 0)
+                return false;
+            int recordStart = window.position();
+            int length = readVarint(window);
+            if (length <= 0)
+                return false;
+            if (length > window.remaining()) {
+                if (windowStart + window.limit() >= size)
+                    return false; // A record that was cut off by a crash.
+                map(windowStart + recordStart);
+                readVarint(window);
+            }
+            int flags = window.get();
+            startingPlayer = flags & 1;
+            winner = (flags >> 1 & 3) - 1;
+            moveCount = readVarint(window);
+            if (moves.length < moveCount)
+                moves = Arrays.copyOf(moves, Math.max(moveCount, moves.length * 2));
+            for (int i = 0; i < moveCount; i++)
+                moves[i] = readVarint(window);
+            return true;
+        }
+
+        /**
+         * Gets the ID of the player that moved first in the current game.
+         *
+         * @return The ID of the starting player.
+         */
+        public int getStartingPlayer() {
+            return startingPlayer;
+        }
+
+        /**
+         * Gets the winner of the current game.
+         *
+         * @return The ID of the winner, or -1 if the game wasn't finished.
+         */
+        public int getWinner() {
+            return winner;
+        }
+
+        /**
+         * Gets the number of moves of the current game.
+         *
+         * @return The number of moves.
+         */
+        public int getMoveCount() {
+            return moveCount;
+        }
+
+        /**
+         * Gets a move of the current game.
+         *
+         * @param index The index of the move, 0 for the first move.
+         * @return The move code (see {@link Move}).
+         */
+        public int getMove(int index) {
+            return moves[index];
+        }
+
+        /**
+         * Replays the current game on a new engine.
+         *
+         * @return The engine after the moves of the game.
+         * @throws IllegalStateException If a move of the game isn't legal.
+         */
+        public GameEngine replay() {
+            GameEngine engine = new GameEngine(startingPlayer);
+            for (int i = 0; i < moveCount; i++)
+                if (!engine.getGameRules().commitMove(moves[i]))
+                    throw new IllegalStateException("Illegal move " + Move.toString(moves[i]) + " at " + i);
+            return engine;
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Scans a log and prints the number of games, moves and wins and the scanning speed.
+     *
+     * @param args The path of the log, and "-replay" to replay every game on the board as well.
+     * @throws IOException If the log can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: GameLog <file> [-replay]");
+            System.exit(1);
+        }
+        boolean replay = args.length > 1 && args[1].equals("-replay");
+        long games = 0, moves = 0;
+        long[] wins = new long[3];
+        long start = System.nanoTime();
+        try (Reader reader = new Reader(Paths.get(args[0]))) {
+            while (reader.next()) {
+                games++;
+                moves += reader.getMoveCount();
+                wins[reader.getWinner() + 1]++;
+                if (replay)
+                    reader.replay();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d moves, wins %d / %d, unfinished %d, %.0f games/s%n",
+                games, moves, wins[1], wins[2], wins[0], games / seconds);
+    }
+}
@@ -1,19 +1,38 @@
 package Controller;
 import Model.*;
+import Utilities.Zobrist;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Stack;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class GameRules {
+    private static final Pattern WALL_SYNTAX = Pattern.compile("([a-h][1-8]h?)|([a-h][2-9]v?)");
+    // The flags of a made wall move.
+    private static final int WALL_ADDED = 1, WALL_USED = 2;
+
     private final Player[] players;
-    private final Board board;
+    private final GameBoard board;
 
     private int turn;
     private final int startingPlayer;
-    private static int moveCounter;
-    private final Stack<String> moveStack = new Stack<>();
+    private int moveCounter;
+    // The codes (see Move) of the moves made so far, the first moveCounter entries are in use.
+    // The redoCount entries after them are moves that were taken back and can be made again.
+    private int[] moveStack = new int[64];
+    private int redoCount;
+    // What every made move changed, to take it back: the square a pawn move left,
+    // and whether a wall move added its wall and used up a wall of the player.
+    private Square[] previousPositions = new Square[64];
+    private int[] undoFlags = new int[64];
+    // The state after the last committed move, for readers on other threads.
+    private volatile GameState committedState;
+    // The log the game is appended to once it ends, and whether it was.
+    private GameLog gameLog;
+    private boolean logged;
 
 
     /**
@@ -24,7 +43,7 @@ public class GameRules {
     public GameRules(int startingPlayer) {
         int MAX_PLAYERS = 2;
         this.players = new Player[MAX_PLAYERS];
-        this.board = new Board();
+        this.board = new BitBoard();
 
         this.startingPlayer = startingPlayer;
         this.turn = startingPlayer;
@@ -38,43 +57,218 @@ public class GameRules {
      * @param playerId       ID of the player.
      */
     public void addPlayerData(String playerName, String startingSquare, int playerId) {
-        Player player = new Player(playerName, new Square(startingSquare));
+        Player player = new Player(playerName, Square.of(startingSquare));
         players[playerId] = player;
+        if (players[0] != null && players[1] != null)
+            committedState = snapshot();
     }
 
     /**
      * Processes a move played by a player.
      *
-     * @param move A move to process.
+     * @param move A move to process, in the game's notation.
      * @return True if the move is legal and was committed, false otherwise.
      */
     public boolean commitMove(String move) {
-        if (gameOver()) {
+        int code = Move.fromString(move);
+        return code != Move.NONE && commitMove(code);
+    }
+
+    /**
+     * Processes a move played by a player, given by its move code.
+     *
+     * @param move The code of the move to process (see {@link Move}).
+     * @return True if the move is legal and was committed, false otherwise.
+     */
+    public boolean commitMove(int move) {
+        if (!isLegalMove(move))
             return false;
+        makeMove(move);
+        committedState = snapshot();
+        if (gameOver())
+            logGame(getWinner());
+        return true;
+    }
+
+    /**
+     * Checks if a move is legal for the player to move, without playing it.
+     *
+     * @param move The code of the move to check (see {@link Move}).
+     * @return True if the move would be committed, false otherwise.
+     */
+    public boolean isLegalMove(int move) {
+        if (gameOver() || move < 0 || move >= Move.COUNT)
+            return false;
+        if (Move.isWall(move))
+            return players[getTurn()].getWallsLeft() > 0 && board.isLegalWallPlacement(Move.slot(move), players[0], players[1]);
+        // It's a traversal move.
+        return isValidTraversal(getCurrentPlayerPos(), Square.of(Move.square(move)), getOtherPlayerPos());
+    }
+
+    /**
+     * Sets the log that the game is appended to once it ends: when a committed move wins it,
+     * or when it is ended with {@link #endGame()}.
+     *
+     * @param gameLog The game log, or null to not log the game.
+     */
+    public void setGameLog(GameLog gameLog) {
+        this.gameLog = gameLog;
+    }
+
+    /**
+     * Ends a game that may not be finished, e.g. when its players leave, appending it to the game log
+     * without a winner if it wasn't logged yet. A game without moves isn't logged.
+     */
+    public void endGame() {
+        if (moveCounter > 0)
+            logGame(-1);
+    }
+
+    private void logGame(int winner) {
+        if (gameLog == null || logged)
+            return;
+        logged = true;
+        try {
+            gameLog.append(this, winner);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Plays a move of the player to move without validating it, so it can be taken back with {@link #unmakeMove()}.
+     * The board keeps its hash and distance fields up to date itself, so a move and its undo cost a few updates,
+     * not a copy of the game. Making a move forgets the moves that can be redone.
+     *
+     * @param move The code of the move (see {@link Move}).
+     */
+    public void makeMove(int move) {
+        redoCount = 0;
+        playMove(move);
+    }
+
+    /**
+     * Takes back the last move made, restoring the pawn or the wall, the wall count, the turn and the move count.
+     *
+     * @return The code of the move taken back, or {@link Move#NONE} if no move was made.
+     */
+    public int unmakeMove() {
+        if (moveCounter == 0)
+            return Move.NONE;
+        turn--;
+        moveCounter--;
+        redoCount++;
+        int move = moveStack[moveCounter];
+        Player player = players[getTurn()];
+        if (Move.isWall(move)) {
+            if ((undoFlags[moveCounter] & WALL_ADDED) != 0)
+                board.removeWall(Move.slot(move));
+            if ((undoFlags[moveCounter] & WALL_USED) != 0)
+                player.incWalls();
+        } else {
+            player.setPosition(previousPositions[moveCounter]);
+            previousPositions[moveCounter] = null;
+        }
+        return move;
+    }
+
+    /**
+     * Makes again the last move taken back by {@link #unmakeMove()}.
+     *
+     * @return The code of the move made again, or {@link Move#NONE} if there is no move to redo.
+     */
+    public int redoMove() {
+        if (redoCount == 0)
+            return Move.NONE;
+        redoCount--;
+        int move = moveStack[moveCounter];
+        playMove(move);
+        return move;
+    }
+
+    private void playMove(int move) {
+        if (moveCounter == moveStack.length) {
+            moveStack = Arrays.copyOf(moveStack, moveStack.length * 2);
+            previousPositions = Arrays.copyOf(previousPositions, moveStack.length);
+            undoFlags = Arrays.copyOf(undoFlags, moveStack.length);
         }
-        if (isValidWallSyntax(move)) { // Check if the move is a wall move in syntax.
-            Wall wall = new Wall(move);
-            if (isValidWallPlacement(wall)) {
-                addWall(wall);
-                moveStack.add(wall.toString());
-                updateTurn();
-                return true;
+        Player player = players[getTurn()];
+        if (Move.isWall(move)) {
+            int slot = Move.slot(move);
+            int flags = 0;
+            if (!board.hasWall(slot)) {
+                board.addWall(slot);
+                flags |= WALL_ADDED;
             }
-        } else if(move.length() == 2) { // It's a traversal move.
-            Square newPos = new Square(move);
-            Square oldPos = getCurrentPlayerPos();
-            if (isValidTraversal(oldPos, newPos, getOtherPlayerPos())) {
-                players[getTurn()].setPosition(newPos);
-                moveStack.add(newPos.toString());
-                updateTurn();
-                return true;
+            if (player.getWallsLeft() > 0) {
+                player.decWalls();
+                flags |= WALL_USED;
             }
+            undoFlags[moveCounter] = flags;
+        } else {
+            previousPositions[moveCounter] = player.getPosition();
+            player.setPosition(Square.of(Move.square(move)));
         }
-        return false;
+        moveStack[moveCounter] = move;
+        updateTurn();
     }
 
+    /**
+     * Takes a snapshot of the current state, including moves made with {@link #makeMove(int)} and not taken back.
+     * Like every other method that changes or reads the game, this is meant for the thread that plays the game.
+     *
+     * @return An immutable snapshot of the game.
+     */
+    public GameState snapshot() {
+        Player player0 = players[0], player1 = players[1];
+        return new GameState(board.getWalls(0), board.getWalls(1),
+                player0.getPosition().toIndex(), player0.getDestRow(), player0.getWallsLeft(),
+                player1.getPosition().toIndex(), player1.getDestRow(), player1.getWallsLeft(),
+                getTurn(), moveCounter);
+    }
+
+    /**
+     * Gets the snapshot taken after the last committed move. It's published safely, so any thread can read it
+     * without locks while the game, and the searches on it, go on.
+     *
+     * @return The state after the last committed move, or null if the players weren't added yet.
+     */
+    public GameState getCommittedState() {
+        return committedState;
+    }
+
+    /**
+     * Gets the moves made so far in the game's notation, the last move on top.
+     * The strings are created on every call, so this is meant for showing the moves, not for the engine.
+     *
+     * @return A new stack of the moves made.
+     */
     public Stack<String> getMoveStack() {
-        return moveStack;
+        Stack<String> moves = new Stack<>();
+        for (int i = 0; i < moveCounter; i++)
+            moves.push(Move.toString(moveStack[i]));
+        return moves;
+    }
+
+    /**
+     * Gets a move made so far.
+     *
+     * @param index The index of the move, 0 for the first move.
+     * @return The code of the move (see {@link Move}).
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= moveCounter)
+            throw new IndexOutOfBoundsException("Move " + index + " of " + moveCounter);
+        return moveStack[index];
+    }
+
+    /**
+     * Gets the last move made.
+     *
+     * @return The code of the last move (see {@link Move}), or {@link Move#NONE} if no move was made.
+     */
+    public int getLastMove() {
+        return moveCounter == 0 ? Move.NONE : moveStack[moveCounter - 1];
     }
 
     /**
@@ -86,9 +280,7 @@ public class GameRules {
     public boolean isValidWallSyntax(String move) {
         if (move.length() == 2)
             return false;
-        Pattern p = Pattern.compile("([a-h][1-8]h?)|([a-h][2-9]v?)");
-        Matcher m = p.matcher(move);
-        return m.matches();
+        return WALL_SYNTAX.matcher(move).matches();
     }
 
     /**
@@ -100,8 +292,8 @@ public class GameRules {
      */
     public boolean isValidWallPlacement(String startingSquareString, boolean isHorizontal) {
         char orientation = isHorizontal ? 'h' : 'v';
-        Square sq = new Square(startingSquareString);
-        Wall wall = new Wall(sq, orientation);
+        Square sq = Square.of(startingSquareString);
+        Wall wall = Wall.of(sq, orientation);
         return isValidWallPlacement(wall);
     }
 
@@ -112,9 +304,23 @@ public class GameRules {
      * @return True if the wall placement is legal, false otherwise.
      */
     public boolean isValidWallPlacement(Wall wall) {
-        if (players[getTurn()].getWallsLeft() <= 0 || !isValidWallSyntax(wall.toString()))
+        int slot = wall.toSlot();
+        if (players[getTurn()].getWallsLeft() <= 0 || slot < 0)
             return false;
-        return board.isLegalWallPlacement(wall, players[0], players[1]);
+        return board.isLegalWallPlacement(slot, players[0], players[1]);
+    }
+
+    /**
+     * Calculates every wall the current player can legally place.
+     *
+     * @param legal A mask of two longs that receives the slots (see {@link Wall#toSlot()}) of the legal walls.
+     */
+    public void getLegalWalls(long[] legal) {
+        if (players[getTurn()].getWallsLeft() <= 0) {
+            legal[0] = legal[1] = 0;
+            return;
+        }
+        board.getLegalWalls(players[0], players[1], legal);
     }
 
     /**
@@ -157,6 +363,18 @@ public class GameRules {
         return players[0].getPosition().getRow() == players[0].getDestRow() || players[1].getPosition().getRow() == players[1].getDestRow();
     }
 
+    /**
+     * Gets the winner of the game.
+     *
+     * @return The ID of the player who reached their goal, or -1 if the game isn't over.
+     */
+    public int getWinner() {
+        for (int id = 0; id < 2; id++)
+            if (players[id].getPosition().getRow() == players[id].getDestRow())
+                return id;
+        return -1;
+    }
+
     private void updateTurn() {
         turn++;
         moveCounter++;
@@ -252,14 +470,28 @@ public class GameRules {
     }
 
     /**
-     * Gets the board graph.
+     * Gets the game board.
      *
-     * @return The board graph.
+     * @return The game board.
      */
-    public Board getBoard() {
+    public GameBoard getBoard() {
         return this.board;
     }
 
+    /**
+     * Gets the Zobrist hash of the game state: the placed walls, both pawns, both wall counts and the side to move.
+     * The wall part is kept up to date by the board, the rest are a few lookups, so the hash always matches the
+     * current players even when their positions are changed directly.
+     *
+     * @return The hash of the game state.
+     */
+    public long getZobristKey() {
+        return board.getWallHash()
+                ^ Zobrist.pawn(0, players[0].getPosition().toIndex()) ^ Zobrist.pawn(1, players[1].getPosition().toIndex())
+                ^ Zobrist.wallsLeft(0, players[0].getWallsLeft()) ^ Zobrist.wallsLeft(1, players[1].getWallsLeft())
+                ^ Zobrist.side(getTurn());
+    }
+
     /**
      * Gets the player with the specified ID.
      *
@@ -0,0 +1,246 @@
+package Controller;
+
+import Model.Move;
+import Utilities.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many games against the AI in one process, one game session per connection.
+ * Every session runs on its own thread, a virtual thread when the runtime has them, so an idle session costs
+ * almost nothing. AI turns are handed to a bounded pool of CPU threads, so the sessions can't use more cores than that.
+ * The sessions share one table of AI decisions.
+ * <p>
+ * The protocol is line based, on the loopback interface. The client plays the human (the player starting at e1):
+ * <ul>
+ *     <li>{@code NEW HUMAN} or {@code NEW AI} starts a new game where the given player moves first.</li>
+ *     <li>A move in the game's notation, e.g. {@code e2} or {@code e3h}, plays it.</li>
+ *     <li>{@code MOVES} lists the legal moves of the player to move.</li>
+ *     <li>{@code QUIT} closes the session.</li>
+ * </ul>
+ * The server answers {@code OK} to an accepted command, {@code ILLEGAL} to a rejected move, {@code ERROR} to
+ * anything else, {@code MOVE <move>} for every move of the AI and {@code WINNER HUMAN} or {@code WINNER AI}
+ * when the game is over.
+ */
+public class GameServer implements Closeable {
+    private static final int DEFAULT_PORT = 7777;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessionThreads;
+    private final ExecutorService aiPool;
+    private final TranspositionTable decisions = new TranspositionTable(20, TranspositionTable.ReplacementPolicy.ALWAYS);
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final GameLog gameLog;
+    private OpeningBook book;
+    private volatile boolean running = true;
+
+    /**
+     * Opens the server socket.
+     *
+     * @param port      The port to listen on, 0 picks a free port.
+     * @param aiThreads The number of threads that run AI turns.
+     * @throws IOException If the socket can't be opened.
+     */
+    public GameServer(int port, int aiThreads) throws IOException {
+        this(port, aiThreads, null);
+    }
+
+    /**
+     * Opens the server socket, appending every game to a game log, with no winner if the client left it unfinished.
+     *
+     * @param port      The port to listen on, 0 picks a free port.
+     * @param aiThreads The number of threads that run AI turns.
+     * @param gameLog   The log of the games, or null to not log them.
+     * @throws IOException If the socket can't be opened.
+     */
+    public GameServer(int port, int aiThreads, GameLog gameLog) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.sessionThreads = Executors.newCachedThreadPool(sessionThreadFactory());
+        this.aiPool = Executors.newFixedThreadPool(aiThreads);
+        this.gameLog = gameLog;
+    }
+
+    /**
+     * Sets the opening book of the AI of every new game.
+     *
+     * @param book The opening book, or null to not use one.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Accepts connections until the server is closed, starting a session for each of them.
+     */
+    public void serve() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessionThreads.execute(() -> runSession(socket));
+            } catch (IOException e) {
+                if (running)
+                    System.err.println("Failed to accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of sessions that are currently open.
+     *
+     * @return The number of open sessions.
+     */
+    public int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * Stops accepting connections and stops the threads of the server.
+     */
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        sessionThreads.shutdownNow();
+        aiPool.shutdownNow();
+    }
+
+    /**
+     * Plays games with one client until it quits or disconnects.
+     *
+     * @param socket The connection of the client.
+     */
+    private void runSession(Socket socket) {
+        sessions.incrementAndGet();
+        GameEngine engine = null;
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+            engine = newGame(GameEngine.HUMAN_PLAYER);
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.trim();
+                int move = Move.fromString(command);
+                if (command.equalsIgnoreCase("QUIT"))
+                    break;
+                if (command.equalsIgnoreCase("NEW HUMAN") || command.equalsIgnoreCase("NEW AI")) {
+                    engine.endGame();
+                    engine = newGame(command.equalsIgnoreCase("NEW HUMAN") ? GameEngine.HUMAN_PLAYER : GameEngine.AI_PLAYER);
+                    out.println("OK");
+                    playAI(engine, out);
+                } else if (command.equalsIgnoreCase("MOVES")) {
+                    out.println(legalMoves(engine));
+                } else if (engine.getTurn() != GameEngine.HUMAN_PLAYER || engine.isGameOver()
+                        || move == Move.NONE) {
+                    out.println("ERROR");
+                } else if (engine.applyMove(move)) {
+                    out.println("OK");
+                    playAI(engine, out);
+                } else {
+                    out.println("ILLEGAL");
+                }
+            }
+            engine.endGame();
+        } catch (IOException e) {
+            // The client disconnected, the game is ended where it stands.
+            if (engine != null)
+                engine.endGame();
+        } catch (InterruptedException e) {
+            // The server is closing while the AI may still be moving, the game is dropped.
+        } finally {
+            sessions.decrementAndGet();
+        }
+    }
+
+    private GameEngine newGame(int startingPlayer) {
+        GameEngine engine = new GameEngine(startingPlayer);
+        AI ai = new AI(engine.getListener(), engine.getGameRules(), GameEngine.AI_PLAYER, decisions);
+        ai.setOpeningBook(book);
+        engine.setAgent(GameEngine.AI_PLAYER, ai);
+        engine.setGameLog(gameLog);
+        return engine;
+    }
+
+    /**
+     * Lets the AI move on the AI pool if it's its turn, and reports the move and the winner.
+     */
+    private void playAI(GameEngine engine, PrintWriter out) throws InterruptedException {
+        if (!engine.isGameOver() && engine.getTurn() == GameEngine.AI_PLAYER) {
+            Future<String> move = aiPool.submit(engine::playAgentTurn);
+            try {
+                String played = move.get();
+                if (played != null)
+                    out.println("MOVE " + played);
+            } catch (ExecutionException e) {
+                out.println("ERROR");
+                return;
+            }
+        }
+        if (engine.isGameOver())
+            out.println(engine.getWinner() == GameEngine.HUMAN_PLAYER ? "WINNER HUMAN" : "WINNER AI");
+    }
+
+    private static String legalMoves(GameEngine engine) {
+        int[] moves = new int[Move.COUNT];
+        int count = engine.getLegalMoves(moves);
+        StringBuilder sb = new StringBuilder("MOVES");
+        for (int i = 0; i < count; i++)
+            sb.append(' ').append(Move.toString(moves[i]));
+        return sb.toString();
+    }
+
+    /**
+     * Creates virtual threads on runtimes that have them (Java 21 and up), and platform threads otherwise.
+     */
+    private static ThreadFactory sessionThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Method factory = ofVirtual.getReturnType().getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return Executors.defaultThreadFactory();
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     *
+     * @param args The port, the number of AI threads, the path of a game log and the path of an opening book,
+     *             all optional.
+     * @throws IOException If the socket, the game log or the opening book can't be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int aiThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameLog gameLog = args.length > 2 ? GameLog.open(Paths.get(args[2])) : null;
+        GameServer server = new GameServer(port, aiThreads, gameLog);
+        if (args.length > 3)
+            server.setOpeningBook(new OpeningBook(Paths.get(args[3])));
+        System.out.println("Serving games on port " + server.getPort());
+        server.serve();
+    }
+}
@@ -0,0 +1,361 @@
+package Controller;
+
+import Model.Move;
+
+import java.util.SplittableRandom;
+
+/**
+ * An agent that decides its moves with Monte Carlo tree search and UCT selection.
+ * The tree is kept in parallel primitive arrays indexed by node, the children of a node lie next to each other,
+ * so a node costs a few ints and a float and the size of the tree is fixed when the agent is constructed.
+ * When the tree is full the search keeps running playouts from its leaves without expanding them.
+ */
+public class MctsAI implements Agent {
+    /**
+     * The unit of the search budget.
+     */
+    public enum Budget {
+        /**
+         * The budget is a number of playouts per move.
+         */
+        PLAYOUTS,
+        /**
+         * The budget is a number of milliseconds per move.
+         */
+        MILLISECONDS
+    }
+
+    /**
+     * The way a playout picks its moves.
+     */
+    public enum RolloutPolicy {
+        /**
+         * Every pawn move and path cutting wall is equally likely.
+         */
+        UNIFORM,
+        /**
+         * Pawn moves mostly follow the shortest path and walls mostly cut the opponent's shortest path.
+         */
+        SHORTEST_PATH
+    }
+
+    private static final double EXPLORATION = 1.0;
+    private static final int MAX_ROLLOUT = 200;
+    private static final int MAX_TREE_DEPTH = 256;
+    private static final int MAX_CHILDREN = Move.COUNT;
+    private static final int CHECK_INTERVAL = 64;
+    // The chance of each choice of the shortest path policy.
+    private static final double WALL_CHANCE = 0.15;
+    private static final double GREEDY_CHANCE = 0.85;
+
+    private final GameRules gameRules;
+    private final GameListener listener;
+    private OpeningBook book;
+    private final int agentID;
+    private final long budget;
+    private final Budget budgetUnit;
+    private final RolloutPolicy policy;
+    private final SplittableRandom random;
+
+    // The tree, one entry per node. The root is node 0.
+    private final int[] nodeMove;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] visits;
+    private final float[] wins; // For the player who made the move of the node.
+    private int nodeCount;
+
+    private final int[] path = new int[MAX_TREE_DEPTH + 1];
+    private final int[] moves = new int[MAX_CHILDREN];
+    private final int[] pathMoves = new int[MAX_CHILDREN];
+    private final long[] pathWalls = new long[2];
+    private SearchState state;
+    private long playouts;
+    private final AiMetrics.Turn metrics;
+
+    /**
+     * Constructs a tree search agent with the shortest path rollout policy and room for a million nodes.
+     *
+     * @param listener    The listener of the moves, e.g. the view.
+     * @param gameRules   The game rules class.
+     * @param id          The ID of the agent.
+     * @param budget      The budget of each move.
+     * @param budgetUnit  Whether the budget counts playouts or milliseconds.
+     */
+    public MctsAI(GameListener listener, GameRules gameRules, int id, long budget, Budget budgetUnit) {
+        this(listener, gameRules, id, budget, budgetUnit, RolloutPolicy.SHORTEST_PATH, 1 << 20, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a tree search agent.
+     *
+     * @param listener    The listener of the moves, e.g. the view.
+     * @param gameRules   The game rules class.
+     * @param id          The ID of the agent.
+     * @param budget      The budget of each move.
+     * @param budgetUnit  Whether the budget counts playouts or milliseconds.
+     * @param policy      The rollout policy of the playouts.
+     * @param maxNodes    The number of nodes the tree has room for.
+     * @param random      The source of randomness of the playouts.
+     */
+    public MctsAI(GameListener listener, GameRules gameRules, int id, long budget, Budget budgetUnit,
+                  RolloutPolicy policy, int maxNodes, SplittableRandom random) {
+        if (maxNodes <= MAX_CHILDREN)
+            throw new IllegalArgumentException("The tree must have room for the children of the root: " + maxNodes);
+        this.listener = listener;
+        this.gameRules = gameRules;
+        this.agentID = id;
+        this.budget = budget;
+        this.budgetUnit = budgetUnit;
+        this.policy = policy;
+        this.random = random;
+        this.nodeMove = new int[maxNodes];
+        this.firstChild = new int[maxNodes];
+        this.childCount = new int[maxNodes];
+        this.visits = new int[maxNodes];
+        this.wins = new float[maxNodes];
+        this.metrics = new AiMetrics.Turn("mcts", id);
+    }
+
+    /**
+     * Searches for the best move and plays it, if it's the agent's turn. The turn is recorded in the {@link AiMetrics}.
+     */
+    public void AiTurn() {
+        if (gameRules.getTurn() != agentID || gameRules.gameOver())
+            return;
+        metrics.begin(gameRules.getBoard());
+        playTurn();
+        metrics.end(gameRules.getMoveNum());
+    }
+
+    /**
+     * Plays the move of the turn: from the opening book, from the race tablebase or the best move of the search.
+     */
+    private void playTurn() {
+        if (book != null && book.playBookMove(gameRules, listener))
+            return;
+        if (AI.playRaceMove(gameRules, listener))
+            return;
+        int move = search();
+        metrics.nodesSearched(playouts);
+        if (move != Move.NONE)
+            AI.playMove(gameRules, listener, move);
+    }
+
+    /**
+     * Sets the opening book the agent plays from before it searches.
+     *
+     * @param book The opening book, or null to search on every move.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Runs playouts on the current game state until the budget is spent.
+     *
+     * @return The most visited move of the root.
+     */
+    int search() {
+        state = new SearchState(gameRules);
+        nodeCount = 1;
+        resetNode(0, Move.NONE);
+        playouts = 0;
+        long deadline = System.currentTimeMillis() + budget;
+        while (true) {
+            if (budgetUnit == Budget.PLAYOUTS ? playouts >= budget
+                    : playouts % CHECK_INTERVAL == 0 && System.currentTimeMillis() >= deadline && playouts > 0)
+                break;
+            playout();
+        }
+
+        int best = Move.NONE, bestVisits = -1;
+        for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++)
+            if (visits[child] > bestVisits) {
+                bestVisits = visits[child];
+                best = nodeMove[child];
+            }
+        return best;
+    }
+
+    /**
+     * Gets the number of playouts of the last search.
+     *
+     * @return The number of playouts.
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Runs one playout: selects a leaf by UCT, expands it, plays the game out from it and updates the nodes on the way.
+     */
+    private void playout() {
+        int depth = 0, node = 0;
+        path[depth++] = node;
+        while (childCount[node] > 0 && depth < MAX_TREE_DEPTH) {
+            node = selectChild(node);
+            state.makeMove(nodeMove[node]);
+            path[depth++] = node;
+        }
+        if (!isOver() && (visits[node] > 0 || node == 0) && depth < MAX_TREE_DEPTH && expand(node)) {
+            node = firstChild[node] + random.nextInt(childCount[node]);
+            state.makeMove(nodeMove[node]);
+            path[depth++] = node;
+        }
+
+        int rolloutMoves = 0;
+        while (!isOver() && rolloutMoves < MAX_ROLLOUT) {
+            int move = rolloutMove();
+            if (move == Move.NONE)
+                break; // The pawn is boxed in by the other pawn and the walls.
+            state.makeMove(move);
+            rolloutMoves++;
+        }
+        int winner = winner();
+        for (int i = 0; i < rolloutMoves; i++)
+            state.unmakeMove();
+
+        // The player to move at the leaf is known, every node above it alternates.
+        int mover = state.getTurn() ^ 1;
+        for (int i = depth - 1; i >= 0; i--) {
+            int n = path[i];
+            visits[n]++;
+            if (winner == mover)
+                wins[n]++;
+            else if (winner < 0)
+                wins[n] += 0.5f;
+            if (i > 0)
+                state.unmakeMove();
+            mover ^= 1;
+        }
+        playouts++;
+    }
+
+    /**
+     * Selects the child with the highest upper confidence bound, an unvisited child comes first.
+     */
+    private int selectChild(int node) {
+        double logVisits = Math.log(visits[node]);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+            if (visits[child] == 0)
+                return child;
+            double value = wins[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds a child for every pawn move and path cutting wall of the node, if the tree has room for them.
+     *
+     * @return True if the node was expanded, false otherwise.
+     */
+    private boolean expand(int node) {
+        int count = state.generatePawnMoves(moves);
+        count = state.generateWallMoves(moves, count);
+        if (count == 0 || nodeCount + count > nodeMove.length)
+            return false;
+        firstChild[node] = nodeCount;
+        childCount[node] = count;
+        for (int i = 0; i < count; i++)
+            resetNode(nodeCount++, moves[i]);
+        return true;
+    }
+
+    private void resetNode(int node, int move) {
+        nodeMove[node] = move;
+        firstChild[node] = 0;
+        childCount[node] = 0;
+        visits[node] = 0;
+        wins[node] = 0;
+    }
+
+    /**
+     * Picks the next move of a playout by the rollout policy.
+     *
+     * @return The move, or {@link Move#NONE} if the player to move has no move.
+     */
+    private int rolloutMove() {
+        int player = state.getTurn();
+        if (policy == RolloutPolicy.UNIFORM) {
+            int count = state.generatePawnMoves(moves);
+            count = state.generateWallMoves(moves, count);
+            return count > 0 ? moves[random.nextInt(count)] : Move.NONE;
+        }
+
+        if (state.getWallsLeft(player) > 0 && random.nextDouble() < WALL_CHANCE) {
+            int wall = randomPathWall(player ^ 1);
+            if (wall != Move.NONE)
+                return wall;
+        }
+        int count = state.generatePawnMoves(moves);
+        if (count == 0)
+            return Move.NONE;
+        if (random.nextDouble() >= GREEDY_CHANCE)
+            return moves[random.nextInt(count)];
+        // A random move among the ones that leave the shortest distance to the goal.
+        int best = Move.NONE, bestDistance = Integer.MAX_VALUE, ties = 0;
+        for (int i = 0; i < count; i++) {
+            int distance = state.distanceToGoal(player, Move.square(moves[i]));
+            if (distance < 0)
+                continue;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = moves[i];
+                ties = 1;
+            } else if (distance == bestDistance && random.nextInt(++ties) == 0)
+                best = moves[i];
+        }
+        return best != Move.NONE ? best : moves[random.nextInt(count)];
+    }
+
+    /**
+     * Picks a random legal wall that cuts the shortest path of a player.
+     *
+     * @return The wall move, or {@link Move#NONE} if the wall that was tried isn't legal.
+     */
+    private int randomPathWall(int id) {
+        pathWalls[0] = pathWalls[1] = 0;
+        state.getPathWalls(id, pathWalls);
+        int count = 0;
+        for (int i = 0; i < 2; i++) {
+            long candidates = pathWalls[i];
+            while (candidates != 0) {
+                pathMoves[count++] = Move.wall((i << 6) + Long.numberOfTrailingZeros(candidates));
+                candidates &= candidates - 1;
+            }
+        }
+        if (count == 0)
+            return Move.NONE;
+        int move = pathMoves[random.nextInt(count)];
+        return state.isLegalWall(Move.slot(move)) ? move : Move.NONE;
+    }
+
+    private boolean isOver() {
+        return state.hasWon(0) || state.hasWon(1);
+    }
+
+    /**
+     * Gets the winner of a finished playout. A playout that ran out of moves goes to the player with the shorter path.
+     *
+     * @return The ID of the winner, or -1 for a draw.
+     */
+    private int winner() {
+        if (state.hasWon(0))
+            return 0;
+        if (state.hasWon(1))
+            return 1;
+        int distance0 = state.distanceToGoal(0), distance1 = state.distanceToGoal(1);
+        if (state.getTurn() == 0)
+            distance0--; // The player to move is a step ahead.
+        else
+            distance1--;
+        return distance0 < distance1 ? 0 : distance1 < distance0 ? 1 : -1;
+    }
+}
@@ -0,0 +1,219 @@
+package Controller;
+
+import Model.Move;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A book of opening moves keyed by the Zobrist hash of the game state (see {@link GameRules#getZobristKey()}).
+ * <p>
+ * The book is built offline from a {@link GameLog} of recorded or self-play games: for every state of the first
+ * plies of the games, it keeps the move that scored best for the player who made it. The file holds a header with a
+ * magic number, a version and the number of entries, followed by the entries sorted by key, 16 bytes each:
+ * the key, the move code, the number of games the move was played in and its score in thousandths.
+ * The file is memory mapped and searched in place, so a lookup is a binary search of a few cache lines.
+ */
+public class OpeningBook implements Closeable {
+    private static final int MAGIC = 0x51424F4B; // "QBOK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 16;
+    private static final int DEFAULT_PLIES = 12;
+    private static final int DEFAULT_MIN_GAMES = 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final int entryCount;
+
+    /**
+     * Opens a book file.
+     *
+     * @param file The path of the book.
+     * @throws IOException If the file can't be opened or isn't an opening book.
+     */
+    public OpeningBook(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (entries.capacity() < HEADER_SIZE || entries.getInt(0) != MAGIC)
+                throw new IOException("Not an opening book: " + file);
+            if (entries.getInt(4) != VERSION)
+                throw new IOException("Unsupported opening book version " + entries.getInt(4) + ": " + file);
+            this.entryCount = (int) entries.getLong(8);
+            if (HEADER_SIZE + (long) entryCount * ENTRY_SIZE > entries.capacity())
+                throw new IOException("The opening book is cut off: " + file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up the book move of a game state.
+     *
+     * @param key The Zobrist hash of the game state.
+     * @return The move code (see {@link Move}), or {@link Move#NONE} if the state isn't in the book.
+     */
+    public int lookup(long key) {
+        int index = find(key);
+        return index < 0 ? Move.NONE : entries.getShort(entryOffset(index) + 8);
+    }
+
+    /**
+     * Plays the book move of the current state of a game, if the state is in the book and the move is legal.
+     *
+     * @param gameRules The game to play the move in.
+     * @param listener  The listener of the move.
+     * @return True if a book move was played, false otherwise.
+     */
+    public boolean playBookMove(GameRules gameRules, GameListener listener) {
+        int move = lookup(gameRules.getZobristKey());
+        return move != Move.NONE && AI.playMove(gameRules, listener, move);
+    }
+
+    /**
+     * Gets the number of games the book move of a game state was played in.
+     *
+     * @param key The Zobrist hash of the game state.
+     * @return The number of games, 0 if the state isn't in the book.
+     */
+    public int getGames(long key) {
+        int index = find(key);
+        return index < 0 ? 0 : entries.getInt(entryOffset(index) + 10);
+    }
+
+    /**
+     * Gets the number of states in the book.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    private int find(long key) {
+        int low = 0, high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = entries.getLong(entryOffset(mid));
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private static int entryOffset(int index) {
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Builds a book from the games of a log and writes it to a file.
+     * Every state of the first plies of the games counts the games and the score of each move played in it,
+     * a win counting 1 and an unfinished game 1/2 for the player who made the move. The book keeps, for every state,
+     * the best scoring move among the moves played in at least the given number of games.
+     *
+     * @param log      The log of the games.
+     * @param book     The path of the book to write.
+     * @param plies    The number of plies of every game to learn from.
+     * @param minGames The number of games a move has to be played in to be kept.
+     * @return The number of entries written.
+     * @throws IOException If the log can't be read or the book can't be written.
+     */
+    public static int build(Path log, Path book, int plies, int minGames) throws IOException {
+        // The statistics of every state, per move: the number of games and twice the score.
+        Map<Long, Map<Integer, int[]>> states = new HashMap<>();
+        try (GameLog.Reader reader = new GameLog.Reader(log)) {
+            while (reader.next()) {
+                GameRules gameRules = new GameEngine(reader.getStartingPlayer()).getGameRules();
+                int winner = reader.getWinner();
+                for (int i = 0; i < Math.min(plies, reader.getMoveCount()); i++) {
+                    int move = reader.getMove(i);
+                    long key = gameRules.getZobristKey();
+                    int mover = gameRules.getTurn();
+                    if (!gameRules.commitMove(move))
+                        break;
+                    int[] stats = states.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(move, m -> new int[2]);
+                    stats[0]++;
+                    stats[1] += winner == mover ? 2 : winner < 0 ? 1 : 0;
+                }
+            }
+        }
+
+        List<long[]> chosen = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, int[]>> state : states.entrySet()) {
+            int bestMove = Move.NONE, bestGames = 0;
+            double bestScore = -1;
+            for (Map.Entry<Integer, int[]> move : state.getValue().entrySet()) {
+                int[] stats = move.getValue();
+                double score = stats[1] / (2.0 * stats[0]);
+                if (stats[0] >= minGames && (score > bestScore || score == bestScore && stats[0] > bestGames)) {
+                    bestMove = move.getKey();
+                    bestGames = stats[0];
+                    bestScore = score;
+                }
+            }
+            if (bestMove != Move.NONE)
+                chosen.add(new long[]{state.getKey(), bestMove, bestGames, Math.round(bestScore * 1000)});
+        }
+        chosen.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + chosen.size() * ENTRY_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(chosen.size());
+        for (long[] entry : chosen)
+            buffer.putLong(entry[0]).putShort((short) entry[1]).putInt((int) entry[2]).putShort((short) entry[3]);
+        buffer.flip();
+        try (FileChannel out = FileChannel.open(book, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                out.write(buffer);
+        }
+        return chosen.size();
+    }
+
+    /**
+     * Builds a book from the command line.
+     *
+     * @param args The path of the game log, the path of the book, and optionally -plies N and -min N.
+     * @throws IOException If the log can't be read or the book can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBook <game log> <book> [-plies N] [-min N]");
+            System.exit(1);
+        }
+        int plies = DEFAULT_PLIES, minGames = DEFAULT_MIN_GAMES;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-plies":
+                    plies = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-min":
+                    minGames = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        int entries = build(Paths.get(args[0]), Paths.get(args[1]), plies, minGames);
+        System.out.println("Wrote " + entries + " states to " + args[1]);
+    }
+}
@@ -0,0 +1,408 @@
+package Controller;
+
+import Model.Move;
+import Utilities.RaceTablebase;
+import Utilities.TranspositionTable;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * An agent that decides its moves with an iterative deepening alpha-beta (negamax) search.
+ * States are scored by the difference between the players' shortest path lengths, and the search
+ * goes one ply deeper at a time until the time budget of the turn runs out.
+ * Only walls that cut the current shortest path of either player are searched, since any other wall
+ * doesn't change the score of the state.
+ * With a parallelism above one, the moves of the root are split between the threads of a fork/join pool,
+ * each searching its own copy of the state and sharing the transposition table. The pool is shut down
+ * when the agent is closed.
+ */
+public class SearchAI implements Agent {
+    private static final int WIN = 10000;
+    private static final int MAX_DEPTH = 64;
+    // The longest race a score tells apart, longer races score like races of this length.
+    private static final int MAX_RACE_PLIES = 2 * BOARD_DIMENSION * BOARD_DIMENSION;
+    // Scores within this distance of a win or a loss are decided games, a race found at the deepest ply included.
+    private static final int WIN_BAND = MAX_DEPTH + MAX_RACE_PLIES;
+    private static final int PATH_WEIGHT = 16;
+    // Nodes between two looks at the clock. A node generates and orders every move, which takes tens of
+    // microseconds, so the search notices the deadline within a few milliseconds.
+    private static final int CHECK_INTERVAL = 64;
+
+    private final GameRules gameRules;
+    private final GameListener listener;
+    private OpeningBook book;
+    private final int agentID;
+    private final long timeBudgetMillis;
+    private final TranspositionTable table;
+    private final ForkJoinPool pool;
+
+    private final Searcher searcher = new Searcher();
+    private final ThreadLocal<Searcher> workers = ThreadLocal.withInitial(Searcher::new);
+    private final LongAdder workerNodes = new LongAdder();
+    // The nodes visited by the last search, on all threads.
+    private long searchedNodes;
+    private final AiMetrics.Turn metrics;
+    private SearchState root;
+    private volatile long deadline;
+    private volatile boolean aborted;
+    private volatile boolean canAbort;
+    /**
+     * The best move of the root found by the last completed search of it, kept apart from the table
+     * since a table that is shared with other searches can lose the entry of the root.
+     */
+    private int rootMove;
+
+    /**
+     * Constructs a searching agent.
+     *
+     * @param listener         The listener of the moves, e.g. the view.
+     * @param gameRules        The game rules class.
+     * @param id               The ID of the agent.
+     * @param timeBudgetMillis The time the agent may think on each turn, in milliseconds.
+     */
+    public SearchAI(GameListener listener, GameRules gameRules, int id, long timeBudgetMillis) {
+        this(listener, gameRules, id, timeBudgetMillis, new TranspositionTable(20, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    /**
+     * Constructs a searching agent that stores its search results in the given table.
+     *
+     * @param listener         The listener of the moves, e.g. the view.
+     * @param gameRules        The game rules class.
+     * @param id               The ID of the agent.
+     * @param timeBudgetMillis The time the agent may think on each turn, in milliseconds.
+     * @param table            The transposition table of the search.
+     */
+    public SearchAI(GameListener listener, GameRules gameRules, int id, long timeBudgetMillis, TranspositionTable table) {
+        this(listener, gameRules, id, timeBudgetMillis, table, 1);
+    }
+
+    /**
+     * Constructs a searching agent that splits the moves of the root between several threads.
+     *
+     * @param listener         The listener of the moves, e.g. the view.
+     * @param gameRules        The game rules class.
+     * @param id               The ID of the agent.
+     * @param timeBudgetMillis The time the agent may think on each turn, in milliseconds.
+     * @param table            The transposition table of the search, shared by the threads.
+     * @param parallelism      The number of threads that search, 1 searches on the calling thread only.
+     */
+    public SearchAI(GameListener listener, GameRules gameRules, int id, long timeBudgetMillis, TranspositionTable table, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        this.listener = listener;
+        this.gameRules = gameRules;
+        this.agentID = id;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.table = table;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.metrics = new AiMetrics.Turn("search", id);
+    }
+
+    /**
+     * Searches for the best move and plays it, if it's the agent's turn. The turn is recorded in the {@link AiMetrics}.
+     */
+    public void AiTurn() {
+        if (gameRules.getTurn() != agentID || gameRules.gameOver())
+            return;
+        metrics.begin(gameRules.getBoard());
+        playTurn();
+        metrics.end(gameRules.getMoveNum());
+    }
+
+    /**
+     * Plays the move of the turn: from the opening book, from the race tablebase or the best move of the search.
+     */
+    private void playTurn() {
+        if (book != null && book.playBookMove(gameRules, listener))
+            return;
+        if (AI.playRaceMove(gameRules, listener))
+            return;
+        int move = search();
+        metrics.nodesSearched(searchedNodes);
+        if (move != Move.NONE)
+            AI.playMove(gameRules, listener, move);
+    }
+
+    /**
+     * Shuts down the threads of the search, if the agent has any.
+     */
+    @Override
+    public void close() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    /**
+     * Sets the opening book the agent plays from before it searches.
+     *
+     * @param book The opening book, or null to search on every move.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Runs the iterative deepening search on the current game state.
+     *
+     * @return The best move of the deepest completed iteration.
+     */
+    int search() {
+        root = new SearchState(gameRules);
+        searcher.state = root;
+        deadline = System.currentTimeMillis() + timeBudgetMillis;
+        aborted = false;
+        canAbort = false;
+        table.newSearch();
+        long nodesBefore = searcher.nodes;
+        workerNodes.reset();
+
+        long rootKey = root.getZobristKey();
+        int bestMove = Move.NONE;
+        rootMove = Move.NONE;
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            int score = pool == null ? searcher.negamax(depth, -WIN - 1, WIN + 1, 0) : splitRoot(depth, rootKey);
+            if (aborted)
+                break; // The iteration is incomplete, keep the move of the previous one.
+            bestMove = rootMove;
+            // The first iteration always completes, so there is a move to play.
+            canAbort = bestMove != Move.NONE;
+            if (Math.abs(score) >= WIN - WIN_BAND || System.currentTimeMillis() >= deadline)
+                break; // The game is decided, or out of time.
+        }
+        searchedNodes = searcher.nodes - nodesBefore + workerNodes.sum();
+        return bestMove;
+    }
+
+    /**
+     * Searches the root to the given depth on the pool.
+     * The first (best ordered) move is searched alone to get a bound, then the rest of the moves are searched
+     * in parallel against that bound. The best move is the one with the highest score, a tie goes to the move
+     * that was ordered first. The threads share the transposition table, so the scores they find depend on what
+     * the others stored first, and the chosen move can differ from one run to the next.
+     *
+     * @return The score of the root.
+     */
+    private int splitRoot(int depth, long rootKey) {
+        int count = searcher.generateMoves(0, rootMove);
+        int[] rootMoves = new int[count];
+        System.arraycopy(searcher.moves[0], 0, rootMoves, 0, count);
+        int[] rootScores = new int[count];
+
+        root.makeMove(rootMoves[0]);
+        rootScores[0] = -searcher.negamax(depth - 1, -WIN - 1, WIN + 1, 1);
+        root.unmakeMove();
+        if (aborted)
+            return 0;
+        if (count > 1)
+            pool.invoke(new RootTask(rootMoves, rootScores, 1, count, depth, rootScores[0]));
+        if (aborted)
+            return 0;
+
+        int best = 0;
+        for (int i = 1; i < count; i++)
+            if (rootScores[i] > rootScores[best])
+                best = i;
+        table.store(rootKey, rootScores[best], depth, TranspositionTable.EXACT, rootMoves[best]);
+        rootMove = rootMoves[best];
+        return rootScores[best];
+    }
+
+    /**
+     * Searches a range of root moves, splitting it in halves until every task searches a single move.
+     */
+    private class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] rootMoves, rootScores;
+        private final int from, to, depth, alpha;
+
+        RootTask(int[] rootMoves, int[] rootScores, int from, int to, int depth, int alpha) {
+            this.rootMoves = rootMoves;
+            this.rootScores = rootScores;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.alpha = alpha;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RootTask(rootMoves, rootScores, from, mid, depth, alpha),
+                        new RootTask(rootMoves, rootScores, mid, to, depth, alpha));
+                return;
+            }
+            Searcher worker = workers.get();
+            worker.state = new SearchState(root);
+            worker.state.makeMove(rootMoves[from]);
+            long nodesBefore = worker.nodes;
+            // A score at or below the bound of the first move only tells the move isn't better.
+            rootScores[from] = -worker.negamax(depth - 1, -WIN - 1, -alpha, 1);
+            workerNodes.add(worker.nodes - nodesBefore);
+        }
+    }
+
+    /**
+     * The buffers and the state that one thread searches with.
+     */
+    private class Searcher {
+        // Per ply buffers of the move generator.
+        private final int[][] moves = new int[MAX_DEPTH + 1][Move.COUNT];
+        private final int[][] scores = new int[MAX_DEPTH + 1][Move.COUNT];
+
+        private SearchState state;
+        private long nodes;
+
+        /**
+         * Searches a state to the given depth.
+         *
+         * @return The score of the state for the player to move, within the bounds of the window.
+         */
+        int negamax(int depth, int alpha, int beta, int ply) {
+            if (++nodes % CHECK_INTERVAL == 0 && canAbort && System.currentTimeMillis() >= deadline)
+                aborted = true;
+            if (aborted)
+                return 0;
+
+            int player = state.getTurn();
+            if (state.hasWon(player ^ 1))
+                return -(WIN - ply);
+            RaceTablebase.Table race = ply > 0 ? state.getRaceTable() : null;
+            if (race != null)
+                return raceScore(race, ply);
+            if (depth == 0 || ply == MAX_DEPTH)
+                return evaluate();
+
+            long key = state.getZobristKey();
+            long entry = table.probe(key);
+            int ttMove = ply == 0 ? rootMove : Move.NONE;
+            if (entry != TranspositionTable.MISS) {
+                ttMove = TranspositionTable.move(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                            || (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+                        return score;
+                }
+            }
+
+            int count = generateMoves(ply, ttMove);
+            int originalAlpha = alpha;
+            int best = -WIN - 1, bestMove = Move.NONE;
+            int[] plyMoves = moves[ply];
+            for (int i = 0; i < count; i++) {
+                int move = plyMoves[i];
+                state.makeMove(move);
+                int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                state.unmakeMove();
+                if (aborted)
+                    return 0;
+                if (score > best) {
+                    best = score;
+                    bestMove = move;
+                }
+                if (score > alpha)
+                    alpha = score;
+                if (alpha >= beta)
+                    break;
+            }
+
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                    : best >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+            table.store(key, toTable(best, ply), depth, bound, bestMove);
+            if (ply == 0)
+                rootMove = bestMove;
+            return best;
+        }
+
+        /**
+         * Scores a race exactly: a win or a loss in d plies scores like a win or a loss found d plies deeper,
+         * up to {@link #MAX_RACE_PLIES}.
+         */
+        private int raceScore(RaceTablebase.Table race, int ply) {
+            int square0 = state.getSquare(0), square1 = state.getSquare(1), turn = state.getTurn();
+            int result = race.getResult(square0, square1, turn);
+            if (result == RaceTablebase.DRAW)
+                return 0;
+            return result * (WIN - ply - Math.min(race.getPlies(square0, square1, turn), MAX_RACE_PLIES));
+        }
+
+        /**
+         * Scores a state for the player to move by how much shorter their path is than the opponent's,
+         * with the walls left as a tie breaker.
+         */
+        private int evaluate() {
+            int player = state.getTurn(), opponent = player ^ 1;
+            int pathDifference = state.distanceToGoal(opponent) - state.distanceToGoal(player);
+            return PATH_WEIGHT * pathDifference + state.getWallsLeft(player) - state.getWallsLeft(opponent);
+        }
+
+        /**
+         * Fills the move buffer of a ply, ordered best first: the move of the table, then pawn moves by how much closer
+         * they bring the player to the goal and walls by how much they lengthen the opponent's path compared to the player's.
+         *
+         * @return The number of moves.
+         */
+        int generateMoves(int ply, int ttMove) {
+            int[] plyMoves = moves[ply], plyScores = scores[ply];
+            int player = state.getTurn(), opponent = player ^ 1;
+            int myDistance = state.distanceToGoal(player), opponentDistance = state.distanceToGoal(opponent);
+            int count = state.generatePawnMoves(plyMoves);
+            for (int i = 0; i < count; i++)
+                plyScores[i] = PATH_WEIGHT * (myDistance - state.distanceToGoal(player, Move.square(plyMoves[i])));
+
+            int pawnMoves = count;
+            count = state.generateWallMoves(plyMoves, count);
+            for (int i = pawnMoves; i < count; i++) {
+                state.makeMove(plyMoves[i]);
+                int gain = (state.distanceToGoal(opponent) - opponentDistance) - (state.distanceToGoal(player) - myDistance);
+                state.unmakeMove();
+                plyScores[i] = PATH_WEIGHT * gain - 1; // A pawn move that gains as much is preferred.
+            }
+
+            // Insertion sort by score, the table move goes first.
+            for (int i = 0; i < count; i++)
+                if (plyMoves[i] == ttMove)
+                    plyScores[i] = Integer.MAX_VALUE;
+            for (int i = 1; i < count; i++) {
+                int move = plyMoves[i], score = plyScores[i];
+                int j = i;
+                while (j > 0 && plyScores[j - 1] < score) {
+                    plyMoves[j] = plyMoves[j - 1];
+                    plyScores[j] = plyScores[j - 1];
+                    j--;
+                }
+                plyMoves[j] = move;
+                plyScores[j] = score;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Converts a win score to its distance from the stored state, so it stays correct at any ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN - WIN_BAND)
+            return score + ply;
+        if (score <= -WIN + WIN_BAND)
+            return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN - WIN_BAND)
+            return score - ply;
+        if (score <= -WIN + WIN_BAND)
+            return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,250 @@
+package Controller;
+
+import Model.BitBoard;
+import Model.GameState;
+import Model.Move;
+import Model.MoveGenerator;
+import Utilities.RaceTablebase;
+import Utilities.Zobrist;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * A copy of the game state that a search can play moves on and take them back,
+ * without touching the game rules, the players or the view.
+ * Squares are indexes (row * 9 + col) and moves are codes of {@link Move}.
+ */
+class SearchState {
+    private static final int MAX_MOVES = 512;
+
+    private final BitBoard board;
+    private final int[] squares = new int[2];
+    private final int[] destRows = new int[2];
+    private final int[] wallsLeft = new int[2];
+    private int turn;
+    // The solved races of the current walls, looked up once neither player has walls left, and whether they were.
+    private RaceTablebase.Table raceTable;
+    private boolean raceTableProbed;
+
+    // The moves played so far and the square each pawn move left, to take them back.
+    private final int[] playedMoves = new int[MAX_MOVES];
+    private final int[] previousSquares = new int[MAX_MOVES];
+    private int played;
+
+    // Scratch masks of the wall generator.
+    private final long[] legalWalls = new long[2];
+    private final long[] pathWalls = new long[2];
+
+    /**
+     * Copies the current state of a game.
+     *
+     * @param gameRules The game to copy.
+     */
+    SearchState(GameRules gameRules) {
+        this(gameRules.snapshot());
+    }
+
+    /**
+     * Copies a snapshot of a game.
+     *
+     * @param state The snapshot to copy.
+     */
+    SearchState(GameState state) {
+        board = state.toBoard();
+        for (int id = 0; id < 2; id++) {
+            squares[id] = state.getSquare(id);
+            destRows[id] = state.getDestRow(id);
+            wallsLeft[id] = state.getWallsLeft(id);
+        }
+        turn = state.getTurn();
+    }
+
+    /**
+     * Copies another search state, without the moves that were played on it.
+     *
+     * @param other The state to copy.
+     */
+    SearchState(SearchState other) {
+        board = new BitBoard(other.board);
+        System.arraycopy(other.squares, 0, squares, 0, 2);
+        System.arraycopy(other.destRows, 0, destRows, 0, 2);
+        System.arraycopy(other.wallsLeft, 0, wallsLeft, 0, 2);
+        turn = other.turn;
+    }
+
+    /**
+     * Plays a move of the player to move. The move isn't validated.
+     *
+     * @param move The move code.
+     */
+    void makeMove(int move) {
+        playedMoves[played] = move;
+        if (Move.isWall(move)) {
+            board.addWall(Move.slot(move));
+            wallsLeft[turn]--;
+            raceTable = null;
+            raceTableProbed = false;
+        } else {
+            previousSquares[played] = squares[turn];
+            squares[turn] = Move.square(move);
+        }
+        played++;
+        turn ^= 1;
+    }
+
+    /**
+     * Takes back the last move played.
+     */
+    void unmakeMove() {
+        played--;
+        turn ^= 1;
+        int move = playedMoves[played];
+        if (Move.isWall(move)) {
+            board.removeWall(Move.slot(move));
+            wallsLeft[turn]++;
+            raceTable = null;
+            raceTableProbed = false;
+        } else
+            squares[turn] = previousSquares[played];
+    }
+
+    /**
+     * Fills a buffer with the squares the player to move can step or jump to.
+     *
+     * @param moves The buffer that receives the move codes.
+     * @return The number of pawn moves.
+     */
+    int generatePawnMoves(int[] moves) {
+        return MoveGenerator.generatePawnMoves(board, squares[turn], squares[turn ^ 1], moves);
+    }
+
+    /**
+     * Calculates the walls the player to move can legally place.
+     *
+     * @param legal A mask of two longs that receives the legal wall slots.
+     */
+    void getLegalWalls(long[] legal) {
+        if (wallsLeft[turn] <= 0) {
+            legal[0] = legal[1] = 0;
+            return;
+        }
+        board.getLegalWalls(squares[0], destRows[0], squares[1], destRows[1], legal);
+    }
+
+    /**
+     * Appends the legal walls of the player to move that cut the shortest path of either player to a move buffer.
+     * Any other wall leaves both shortest paths as they are.
+     *
+     * @param moves The buffer that receives the move codes.
+     * @param count The number of moves already in the buffer.
+     * @return The number of moves in the buffer.
+     */
+    int generateWallMoves(int[] moves, int count) {
+        getLegalWalls(legalWalls);
+        if ((legalWalls[0] | legalWalls[1]) == 0)
+            return count;
+        pathWalls[0] = pathWalls[1] = 0;
+        getPathWalls(0, pathWalls);
+        getPathWalls(1, pathWalls);
+        for (int i = 0; i < 2; i++) {
+            long candidates = legalWalls[i] & pathWalls[i];
+            while (candidates != 0) {
+                moves[count++] = Move.wall((i << 6) + Long.numberOfTrailingZeros(candidates));
+                candidates &= candidates - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the player to move can place the wall at the given slot.
+     *
+     * @param slot The slot of the wall.
+     * @return True if the player has walls left and the placement is legal, false otherwise.
+     */
+    boolean isLegalWall(int slot) {
+        return wallsLeft[turn] > 0 && board.isLegalWallPlacement(slot, squares[0], destRows[0], squares[1], destRows[1]);
+    }
+
+    /**
+     * Marks the wall slots that cut the current shortest path of a player.
+     *
+     * @param id    The ID of the player.
+     * @param walls A mask of two longs that the slots are added to.
+     */
+    void getPathWalls(int id, long[] walls) {
+        board.getPathWalls(squares[id], destRows[id], walls);
+    }
+
+    /**
+     * Gets the length of the shortest path of a player to their goal, ignoring the other pawn.
+     *
+     * @param id The ID of the player.
+     * @return The number of steps, or -1 if the goal can't be reached.
+     */
+    int distanceToGoal(int id) {
+        return board.distanceToGoal(squares[id], destRows[id]);
+    }
+
+    /**
+     * Gets the length of the shortest path from a square to the goal of a player.
+     *
+     * @param id     The ID of the player.
+     * @param square The index of the square.
+     * @return The number of steps, or -1 if the goal can't be reached.
+     */
+    int distanceToGoal(int id, int square) {
+        return board.distanceToGoal(square, destRows[id]);
+    }
+
+    /**
+     * Checks if a player has reached their goal.
+     *
+     * @param id The ID of the player.
+     * @return True if the player stands on their destination row, false otherwise.
+     */
+    boolean hasWon(int id) {
+        return squares[id] / BOARD_DIMENSION == destRows[id];
+    }
+
+    int getTurn() {
+        return turn;
+    }
+
+    int getWallsLeft(int id) {
+        return wallsLeft[id];
+    }
+
+    int getSquare(int id) {
+        return squares[id];
+    }
+
+    /**
+     * Gets the solved races of the board, once the state is a race: neither player has walls left.
+     * Only races that are already solved are returned, solving a board takes longer than a search may think.
+     *
+     * @return The solved races, or null if a player still has walls or the board isn't solved yet.
+     */
+    RaceTablebase.Table getRaceTable() {
+        if (wallsLeft[0] != 0 || wallsLeft[1] != 0)
+            return null;
+        if (!raceTableProbed) {
+            raceTable = RaceTablebase.peek(board, destRows[0], destRows[1]);
+            raceTableProbed = true;
+        }
+        return raceTable;
+    }
+
+    /**
+     * Gets the Zobrist hash of the state, equal to {@link GameRules#getZobristKey()} of the same game state.
+     *
+     * @return The hash of the state.
+     */
+    long getZobristKey() {
+        return board.getWallHash()
+                ^ Zobrist.pawn(0, squares[0]) ^ Zobrist.pawn(1, squares[1])
+                ^ Zobrist.wallsLeft(0, wallsLeft[0]) ^ Zobrist.wallsLeft(1, wallsLeft[1])
+                ^ Zobrist.side(turn);
+    }
+
+}
@@ -0,0 +1,299 @@
+package Controller;
+
+import Utilities.TranspositionTable;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many games between two agents in parallel, without a view, and reports the results:
+ * win rates, the Elo difference with its 95% confidence interval, move latencies and games per second.
+ * <p>
+ * Usage: {@code Tournament <agent> <agent> [-games N] [-threads N] [-start alternate|random] [-seed N] [-log file] [-book file]}.
+ * The opening book is given to the first agent only, to measure it against the same agent without it.
+ * An agent is {@code ai} (the heuristic AI), {@code search:<ms>[:<threads>]} or {@code mcts:<ms>}.
+ */
+public class Tournament {
+    /**
+     * A game longer than this is stopped and counted as a draw.
+     */
+    private static final int MAX_PLIES = 300;
+    private static final double Z_95 = 1.96;
+
+    /**
+     * Creates the agents of one entrant of the tournament.
+     */
+    interface AgentFactory {
+        Agent create(GameEngine engine, int id);
+    }
+
+    /**
+     * The outcome of one game.
+     */
+    private static class GameResult {
+        // 0 if the first entrant won, 1 if the second did, -1 for a draw.
+        int winner = -1;
+        final long[][] latencies = new long[2][];
+    }
+
+    private final String[] names;
+    private final AgentFactory[] factories;
+    private final int games;
+    private final int threads;
+    private final boolean randomStart;
+    private final long seed;
+    private GameLog gameLog;
+    private OpeningBook book;
+
+    /**
+     * Constructs a tournament between two agents.
+     *
+     * @param specs       The specifications of the two agents, e.g. "ai" or "search:100".
+     * @param games       The number of games to play.
+     * @param threads     The number of games played at once.
+     * @param randomStart True to pick the starting player of every game at random, false to alternate it.
+     * @param seed        The seed of the random starting players.
+     */
+    public Tournament(String[] specs, int games, int threads, boolean randomStart, long seed) {
+        this.names = specs.clone();
+        this.factories = new AgentFactory[]{parseAgent(specs[0]), parseAgent(specs[1])};
+        this.games = games;
+        this.threads = threads;
+        this.randomStart = randomStart;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the log that every game of the tournament is appended to, a game stopped as a draw without a winner.
+     *
+     * @param gameLog The game log, or null to not log the games.
+     */
+    public void setGameLog(GameLog gameLog) {
+        this.gameLog = gameLog;
+    }
+
+    /**
+     * Sets the opening book of the first entrant.
+     *
+     * @param book The opening book, or null to not use one.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Creates the factory of an agent from its specification.
+     *
+     * @param spec The name of the agent, optionally followed by its time budget in milliseconds and its threads.
+     * @return The factory of the agent.
+     */
+    static AgentFactory parseAgent(String spec) {
+        String[] parts = spec.split(":");
+        long budget = parts.length > 1 ? Long.parseLong(parts[1]) : 100;
+        switch (parts[0]) {
+            case "ai":
+                TranspositionTable decisions = new TranspositionTable(16, TranspositionTable.ReplacementPolicy.ALWAYS);
+                return (engine, id) -> new AI(engine.getListener(), engine.getGameRules(), id, decisions);
+            case "search":
+                int parallelism = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+                TranspositionTable table = new TranspositionTable(20, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+                return (engine, id) -> new SearchAI(engine.getListener(), engine.getGameRules(), id, budget, table, parallelism);
+            case "mcts":
+                return (engine, id) -> new MctsAI(engine.getListener(), engine.getGameRules(), id, budget, MctsAI.Budget.MILLISECONDS);
+            default:
+                throw new IllegalArgumentException("Unknown agent: " + spec);
+        }
+    }
+
+    /**
+     * Plays every game of the tournament and prints the report.
+     *
+     * @throws InterruptedException If the tournament was interrupted.
+     */
+    public void run() throws InterruptedException {
+        Random random = new Random(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<GameResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            // The entrants swap sides every game, so each plays both sides equally often.
+            int firstId = i % 2;
+            int startingPlayer = randomStart ? random.nextInt(2) : (i / 2) % 2;
+            futures.add(pool.submit(() -> playGame(firstId, startingPlayer)));
+        }
+        List<GameResult> results = new ArrayList<>();
+        try {
+            for (Future<GameResult> future : futures)
+                results.add(future.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(report(results, seconds));
+    }
+
+    /**
+     * Plays one game.
+     *
+     * @param firstId        The player ID of the first entrant.
+     * @param startingPlayer The ID of the player that moves first.
+     * @return The result of the game.
+     */
+    private GameResult playGame(int firstId, int startingPlayer) {
+        GameEngine engine = new GameEngine(startingPlayer);
+        engine.setGameLog(gameLog);
+        int[] entrantOf = new int[2];
+        Agent[] agents = new Agent[2];
+        long[][] latencies = new long[2][MAX_PLIES];
+        int[] moves = new int[2];
+        try {
+            for (int entrant = 0; entrant < 2; entrant++) {
+                int id = entrant == 0 ? firstId : 1 - firstId;
+                entrantOf[id] = entrant;
+                agents[entrant] = factories[entrant].create(engine, id);
+                if (entrant == 0)
+                    agents[entrant].setOpeningBook(book);
+                engine.setAgent(id, agents[entrant]);
+            }
+            int plies = 0;
+            while (!engine.isGameOver() && plies < MAX_PLIES) {
+                int entrant = entrantOf[engine.getTurn()];
+                long before = System.nanoTime();
+                if (engine.playAgentTurn() == null)
+                    break; // The agent couldn't move, the game is a draw.
+                latencies[entrant][moves[entrant]++] = System.nanoTime() - before;
+                plies++;
+            }
+        } finally {
+            // The agents of a game hold their search threads until they are closed.
+            for (Agent agent : agents)
+                if (agent != null)
+                    agent.close();
+        }
+        // A game stopped as a draw is logged without a winner, a won game was logged by its last move.
+        engine.endGame();
+        GameResult result = new GameResult();
+        if (engine.getWinner() >= 0)
+            result.winner = entrantOf[engine.getWinner()];
+        for (int entrant = 0; entrant < 2; entrant++)
+            result.latencies[entrant] = Arrays.copyOf(latencies[entrant], moves[entrant]);
+        return result;
+    }
+
+    /**
+     * Writes the report of the played games.
+     */
+    private String report(List<GameResult> results, double seconds) {
+        int[] wins = new int[2];
+        int draws = 0;
+        for (GameResult result : results) {
+            if (result.winner < 0)
+                draws++;
+            else
+                wins[result.winner]++;
+        }
+        int n = results.size();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d games in %.1f s, %.2f games/s%n", n, seconds, n / seconds));
+        for (int entrant = 0; entrant < 2; entrant++) {
+            int e = entrant;
+            long[] latencies = results.stream().flatMapToLong(r -> Arrays.stream(r.latencies[e])).sorted().toArray();
+            double average = latencies.length == 0 ? 0 : Arrays.stream(latencies).average().orElse(0) / 1e6;
+            double p99 = latencies.length == 0 ? 0 : latencies[Math.min(latencies.length - 1, (int) Math.ceil(latencies.length * 0.99) - 1)] / 1e6;
+            sb.append(String.format("%-16s wins %5d (%5.1f%%)  avg move %8.2f ms  p99 move %8.2f ms%n",
+                    names[entrant], wins[entrant], 100.0 * wins[entrant] / n, average, p99));
+        }
+        sb.append(String.format("%-16s      %5d (%5.1f%%)%n", "draws", draws, 100.0 * draws / n));
+
+        // The score of every game for the first entrant is 1, 0.5 or 0.
+        double score = (wins[0] + 0.5 * draws) / n;
+        double deviation = Math.sqrt((wins[0] + 0.25 * draws) / n - score * score);
+        double margin = Z_95 * deviation / Math.sqrt(n);
+        sb.append(String.format("Elo of %s against %s: %s [%s, %s] (95%%)%n", names[0], names[1],
+                formatElo(elo(score)), formatElo(elo(score - margin)), formatElo(elo(score + margin))));
+        return sb.toString();
+    }
+
+    /**
+     * Converts an expected score to an Elo difference.
+     */
+    static double elo(double score) {
+        if (score <= 0)
+            return Double.NEGATIVE_INFINITY;
+        if (score >= 1)
+            return Double.POSITIVE_INFINITY;
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static String formatElo(double elo) {
+        if (Double.isInfinite(elo))
+            return elo > 0 ? "+inf" : "-inf";
+        return String.format("%+.0f", elo);
+    }
+
+    /**
+     * Runs a tournament from the command line.
+     *
+     * @param args The two agents followed by the options.
+     * @throws InterruptedException If the tournament was interrupted.
+     * @throws IOException          If the game log or the opening book can't be opened.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Tournament <agent> <agent> [-games N] [-threads N] [-start alternate|random] [-seed N] [-log file] [-book file]");
+            System.err.println("Agents: ai, search:<ms>[:<threads>], mcts:<ms>");
+            System.exit(1);
+        }
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean randomStart = false;
+        long seed = System.nanoTime();
+        String logFile = null;
+        String bookFile = null;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-start":
+                    randomStart = args[i + 1].equals("random");
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "-log":
+                    logFile = args[i + 1];
+                    break;
+                case "-book":
+                    bookFile = args[i + 1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        Tournament tournament = new Tournament(new String[]{args[0], args[1]}, games, threads, randomStart, seed);
+        if (bookFile != null)
+            tournament.setOpeningBook(new OpeningBook(Paths.get(bookFile)));
+        if (logFile == null) {
+            tournament.run();
+            return;
+        }
+        try (GameLog gameLog = GameLog.open(Paths.get(logFile))) {
+            tournament.setGameLog(gameLog);
+            tournament.run();
+        }
+    }
+}
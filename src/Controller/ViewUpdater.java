@@ -13,8 +13,9 @@ import static Utilities.Constants.TILE_SIZE;
 
 /**
  * Singleton class responsible for updating the view based on game events.
+ * It is the {@link GameListener} of games that are played on the GUI.
  */
-public class ViewUpdater {
+public class ViewUpdater implements GameListener {
     private final GUI view;
     LinkedList<Tile> highlightedTiles = new LinkedList<>();
 
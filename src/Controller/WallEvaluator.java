@@ -0,0 +1,69 @@
+package Controller;
+
+import Model.GameBoard;
+import Model.Wall;
+
+import java.util.Arrays;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * The path lengths of the players after every single wall, shared by the heuristics of {@link AI}.
+ * The board fills the lengths of all the walls for a square in one pass (see {@link GameBoard#getWallDistances}),
+ * and the tables are kept by the walls of the board and the square, so every heuristic of a turn that asks about
+ * the same square reads the same table instead of placing the walls one by one.
+ */
+final class WallEvaluator {
+    private static final int CACHE_SIZE = 16;
+
+    private GameBoard board;
+    private final long[] wallHashes = new long[CACHE_SIZE];
+    // The square and destination row of every table, -1 for an empty entry.
+    private final int[] targets = new int[CACHE_SIZE];
+    private final int[][] tables = new int[CACHE_SIZE][Wall.WALL_SLOTS];
+    // The entry to replace next, the tables are replaced in turn.
+    private int next;
+
+    WallEvaluator() {
+        Arrays.fill(targets, -1);
+    }
+
+    /**
+     * Gets the distance from a square to the destination row with a wall added.
+     *
+     * @param board   The board to add the wall to.
+     * @param slot    The slot of the wall (see {@link Wall#toSlot()}).
+     * @param square  The index of the square.
+     * @param destRow The row to reach.
+     * @return The number of steps in the shortest path with the wall, or -1 if the row can't be reached.
+     */
+    int distance(GameBoard board, int slot, int square, int destRow) {
+        return distances(board, square, destRow)[slot];
+    }
+
+    /**
+     * Gets the distances from a square to the destination row with every wall added on its own.
+     *
+     * @param board   The board to add the walls to.
+     * @param square  The index of the square.
+     * @param destRow The row to reach.
+     * @return The distance per wall slot, which must not be modified.
+     */
+    int[] distances(GameBoard board, int square, int destRow) {
+        if (board != this.board) {
+            this.board = board;
+            Arrays.fill(targets, -1);
+        }
+        long wallHash = board.getWallHash();
+        int target = square * BOARD_DIMENSION + destRow;
+        for (int i = 0; i < CACHE_SIZE; i++)
+            if (targets[i] == target && wallHashes[i] == wallHash)
+                return tables[i];
+        int entry = next;
+        next = (next + 1) % CACHE_SIZE;
+        board.getWallDistances(square, destRow, tables[entry]);
+        wallHashes[entry] = wallHash;
+        targets[entry] = target;
+        return tables[entry];
+    }
+}
@@ -0,0 +1,475 @@
+package Model;
+
+import Utilities.Zobrist;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Represents the game board as bit masks.
+ * Walls are kept as a 128 bit mask of wall slots (see {@link Wall#toSlot()}) and the edges between squares
+ * as two 81 bit masks, one for the edge above every square and one for the edge to the right of every square.
+ * Every mask is split into two longs, so adding, removing and querying walls are a few bit operations.
+ */
+public class BitBoard implements GameBoard {
+    private static final int SQUARES = BOARD_DIMENSION * BOARD_DIMENSION;
+    private static final int WALLS_PER_ROW = BOARD_DIMENSION - 1;
+    private static final int HORIZONTAL_SLOTS = Wall.WALL_SLOTS / 2;
+
+    /**
+     * The placed walls, indexed by wall slot.
+     */
+    private final long[] walls = new long[2];
+    /**
+     * The slots of the walls that are placed, or overlap or cross a placed wall (see {@link Wall#getConflicts}).
+     */
+    private final long[] blocked = new long[2];
+    /**
+     * The number of placed walls that every slot conflicts with, so a slot is only freed by removing its last conflict.
+     */
+    private final byte[] conflictCounts = new byte[Wall.WALL_SLOTS];
+    /**
+     * Bit i is set when a wall blocks the edge between square i and the square above it (i + BOARD_DIMENSION).
+     */
+    private final long[] blockedUp = new long[2];
+    /**
+     * Bit i is set when a wall blocks the edge between square i and the square to its right (i + 1).
+     */
+    private final long[] blockedRight = new long[2];
+    private long wallHash;
+    /**
+     * The distance of every square to the first and to the last row, repaired on every wall change.
+     */
+    private final DistanceField[] goalFields;
+    private final WallOracle oracle = new WallOracle(this);
+    private final PathDag pathDag = new PathDag();
+
+    /**
+     * Initializes a new instance of the BitBoard class, an empty board without walls.
+     */
+    public BitBoard() {
+        this.goalFields = new DistanceField[]{new DistanceField(this, 0), new DistanceField(this, BOARD_DIMENSION - 1)};
+    }
+
+    /**
+     * Initializes a copy of a board, so a search can change the copy while other threads use the original.
+     * The masks and the distance fields are copied as they are, without searching the board again.
+     *
+     * @param other The board to copy.
+     */
+    public BitBoard(BitBoard other) {
+        System.arraycopy(other.walls, 0, walls, 0, 2);
+        System.arraycopy(other.blocked, 0, blocked, 0, 2);
+        System.arraycopy(other.conflictCounts, 0, conflictCounts, 0, Wall.WALL_SLOTS);
+        System.arraycopy(other.blockedUp, 0, blockedUp, 0, 2);
+        System.arraycopy(other.blockedRight, 0, blockedRight, 0, 2);
+        this.wallHash = other.wallHash;
+        this.goalFields = new DistanceField[other.goalFields.length];
+        for (int i = 0; i < goalFields.length; i++)
+            goalFields[i] = new DistanceField(this, other.goalFields[i]);
+    }
+
+    public boolean isLegalWallPlacement(Wall wall, Player player0, Player player1) {
+        int slot = wall.toSlot();
+        return slot >= 0 && isLegalWallPlacement(slot, player0, player1);
+    }
+
+    public boolean isLegalWallPlacement(int slot, Player player0, Player player1) {
+        return oracle.isLegal(slot, player0.getPosition().toIndex(), player0.getDestRow(),
+                player1.getPosition().toIndex(), player1.getDestRow());
+    }
+
+    /**
+     * Checks if the wall at the given slot can be placed, for players given by their squares.
+     *
+     * @param slot     The slot of the wall.
+     * @param square0  The square of the first player.
+     * @param destRow0 The destination row of the first player.
+     * @param square1  The square of the second player.
+     * @param destRow1 The destination row of the second player.
+     * @return True if the wall placement is legal, false otherwise.
+     */
+    public boolean isLegalWallPlacement(int slot, int square0, int destRow0, int square1, int destRow1) {
+        return oracle.isLegal(slot, square0, destRow0, square1, destRow1);
+    }
+
+    public void getLegalWalls(Player player0, Player player1, long[] legal) {
+        getLegalWalls(player0.getPosition().toIndex(), player0.getDestRow(), player1.getPosition().toIndex(), player1.getDestRow(), legal);
+    }
+
+    /**
+     * Calculates every legal wall placement at once, for players given by their squares.
+     *
+     * @param square0  The square of the first player.
+     * @param destRow0 The destination row of the first player.
+     * @param square1  The square of the second player.
+     * @param destRow1 The destination row of the second player.
+     * @param legal    A mask of two longs that receives the slots of the legal walls.
+     */
+    public void getLegalWalls(int square0, int destRow0, int square1, int destRow1, long[] legal) {
+        oracle.legalWalls(square0, destRow0, square1, destRow1, legal);
+    }
+
+    /**
+     * Walks one shortest path from a square to the destination row down the distance field,
+     * and marks every wall slot that would cut a step of that path.
+     *
+     * @param square  The index of the square the path starts at.
+     * @param destRow The destination row, the first or the last row.
+     * @param walls   A mask of two longs that the slots of the cutting walls are added to.
+     * @return True if the destination row is reachable, false otherwise.
+     */
+    public boolean getPathWalls(int square, int destRow, long[] walls) {
+        int distance = distanceToGoal(square, destRow);
+        if (distance == DistanceField.UNREACHABLE)
+            return false;
+        int sq = square;
+        while (distance > 0) {
+            int col = sq % BOARD_DIMENSION;
+            if (col > 0 && isCloser(sq, sq - 1, distance, destRow)) {
+                markRightEdge(sq - 1, walls);
+                sq = sq - 1;
+            } else if (col < BOARD_DIMENSION - 1 && isCloser(sq, sq + 1, distance, destRow)) {
+                markRightEdge(sq, walls);
+                sq = sq + 1;
+            } else if (sq >= BOARD_DIMENSION && isCloser(sq, sq - BOARD_DIMENSION, distance, destRow)) {
+                markUpEdge(sq - BOARD_DIMENSION, walls);
+                sq = sq - BOARD_DIMENSION;
+            } else {
+                markUpEdge(sq, walls);
+                sq = sq + BOARD_DIMENSION;
+            }
+            distance--;
+        }
+        return true;
+    }
+
+    private boolean isCloser(int sq, int next, int distance, int destRow) {
+        return isConnected(sq, next) && distanceToGoal(next, destRow) == distance - 1;
+    }
+
+    /**
+     * Calculates the shortest-path DAG, reading the distances of the first and the last row from the distance fields.
+     */
+    public boolean getPathDag(int square, int destRow, PathDag dag) {
+        for (DistanceField field : goalFields)
+            if (field.getDestRow() == destRow)
+                return dag.calculate(this, field, square);
+        return GameBoard.super.getPathDag(square, destRow, dag);
+    }
+
+    /**
+     * Finds the length of the shortest path from a square to the destination row after each wall is added on its own.
+     * A wall that doesn't block every path of the shortest-path DAG of the square leaves a shortest path open,
+     * so its distance is the current one without a search. Only the few walls that do are added, and the distance
+     * fields repair just the squares they cut off.
+     */
+    public void getWallDistances(int square, int destRow, int[] distances) {
+        int distance = distanceToGoal(square, destRow);
+        long[] cutting = new long[2];
+        getPathDag(square, destRow, pathDag);
+        pathDag.getLengtheningWalls(cutting);
+        for (int slot = 0; slot < Wall.WALL_SLOTS; slot++) {
+            if (!isSet(cutting, slot) || crossesPlacedWall(slot)) {
+                distances[slot] = distance;
+                continue;
+            }
+            addWall(slot);
+            distances[slot] = distanceToGoal(square, destRow);
+            removeWall(slot);
+        }
+    }
+
+    /**
+     * Marks the horizontal walls that can block the edge between a square and the square above it.
+     */
+    private static void markUpEdge(int sq, long[] walls) {
+        int col = sq % BOARD_DIMENSION;
+        int slot = (sq / BOARD_DIMENSION) * WALLS_PER_ROW + col;
+        if (col < WALLS_PER_ROW)
+            set(walls, slot);
+        if (col > 0)
+            set(walls, slot - 1);
+    }
+
+    /**
+     * Marks the vertical walls that can block the edge between a square and the square to its right.
+     */
+    private static void markRightEdge(int sq, long[] walls) {
+        int row = sq / BOARD_DIMENSION;
+        int slot = HORIZONTAL_SLOTS + (row - 1) * WALLS_PER_ROW + sq % BOARD_DIMENSION;
+        if (row > 0)
+            set(walls, slot);
+        if (row < BOARD_DIMENSION - 1)
+            set(walls, slot + WALLS_PER_ROW);
+    }
+
+    public void getFreeWalls(long[] free) {
+        free[0] = ~blocked[0];
+        free[1] = ~blocked[1];
+    }
+
+    public void addWall(Wall wall) {
+        int slot = wall.toSlot();
+        if (slot >= 0)
+            addWall(slot);
+    }
+
+    /**
+     * Adds the wall at the given slot to the board.
+     *
+     * @param slot The slot of the wall to add.
+     */
+    public void addWall(int slot) {
+        if (isSet(walls, slot))
+            return;
+        set(walls, slot);
+        updateConflicts(slot, 1);
+        wallHash ^= Zobrist.wall(slot);
+        if (slot < HORIZONTAL_SLOTS) {
+            int sq = squareOfHorizontalSlot(slot);
+            set(blockedUp, sq);
+            set(blockedUp, sq + 1);
+            for (DistanceField field : goalFields)
+                field.edgesRemoved(sq, sq + BOARD_DIMENSION, sq + 1, sq + 1 + BOARD_DIMENSION);
+        } else {
+            int sq = squareOfVerticalSlot(slot);
+            set(blockedRight, sq);
+            set(blockedRight, sq - BOARD_DIMENSION);
+            for (DistanceField field : goalFields)
+                field.edgesRemoved(sq, sq + 1, sq - BOARD_DIMENSION, sq + 1 - BOARD_DIMENSION);
+        }
+    }
+
+    public void removeWall(Wall wall) {
+        int slot = wall.toSlot();
+        if (slot >= 0)
+            removeWall(slot);
+    }
+
+    /**
+     * Removes the wall at the given slot from the board.
+     * An edge is only reopened if no other placed wall still blocks it.
+     *
+     * @param slot The slot of the wall to remove.
+     */
+    public void removeWall(int slot) {
+        if (!isSet(walls, slot))
+            return;
+        clear(walls, slot);
+        updateConflicts(slot, -1);
+        wallHash ^= Zobrist.wall(slot);
+        if (slot < HORIZONTAL_SLOTS) {
+            int sq = squareOfHorizontalSlot(slot);
+            refreshUpEdge(sq);
+            refreshUpEdge(sq + 1);
+            for (DistanceField field : goalFields)
+                field.edgesAdded(sq, sq + BOARD_DIMENSION, sq + 1, sq + 1 + BOARD_DIMENSION);
+        } else {
+            int sq = squareOfVerticalSlot(slot);
+            refreshRightEdge(sq);
+            refreshRightEdge(sq - BOARD_DIMENSION);
+            for (DistanceField field : goalFields)
+                field.edgesAdded(sq, sq + 1, sq - BOARD_DIMENSION, sq + 1 - BOARD_DIMENSION);
+        }
+    }
+
+    public boolean hasWall(int slot) {
+        return isSet(walls, slot);
+    }
+
+    public long getWalls(int half) {
+        return walls[half];
+    }
+
+    public long getWallHash() {
+        return wallHash;
+    }
+
+    /**
+     * Gets one half of the placed walls mask.
+     *
+     * @param i 0 for the horizontal wall slots, 1 for the vertical wall slots.
+     * @return The bits of the placed walls.
+     */
+    long getWallMask(int i) {
+        return walls[i];
+    }
+
+    public boolean hasPathToGoal(Player player0, Player player1) {
+        return distanceToGoal(player0.getPosition().toIndex(), player0.getDestRow()) != DistanceField.UNREACHABLE
+                && distanceToGoal(player1.getPosition().toIndex(), player1.getDestRow()) != DistanceField.UNREACHABLE;
+    }
+
+    /**
+     * Gets the length of the shortest path from a square to the destination row.
+     * The first and the last row are read from the distance fields, other rows are searched.
+     */
+    public int distanceToGoal(int square, int destRow) {
+        for (DistanceField field : goalFields)
+            if (field.getDestRow() == destRow)
+                return field.distanceOf(square);
+        return GameBoard.super.distanceToGoal(square, destRow);
+    }
+
+    public boolean isLegalTraversal(Square currentSquare, Square newSquare, Square otherPlayerSquare) {
+        if (!GameBoard.isOnBoard(currentSquare) || !GameBoard.isOnBoard(otherPlayerSquare) || !GameBoard.isOnBoard(newSquare))
+            return false;
+        if (newSquare.equals(currentSquare) || newSquare.equals(otherPlayerSquare))
+            return false;
+        if (isConnected(currentSquare, newSquare))
+            return true;
+        if (isConnected(currentSquare, otherPlayerSquare)) {
+            if (isConnected(otherPlayerSquare, currentSquare.opposite(otherPlayerSquare)))
+                // Straight jump, only the square behind the other player is reachable.
+                return isConnected(otherPlayerSquare, newSquare) && currentSquare.isCardinalTo(newSquare);
+            // There is a back wall, so the squares on the sides of the other player are reachable.
+            return isConnected(otherPlayerSquare, newSquare);
+        }
+        return false;
+    }
+
+    public boolean isConnected(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex >= SQUARES || toIndex < 0 || toIndex >= SQUARES)
+            return false;
+        switch (toIndex - fromIndex) {
+            case 1:
+                return fromIndex % BOARD_DIMENSION != BOARD_DIMENSION - 1 && !isSet(blockedRight, fromIndex);
+            case -1:
+                return toIndex % BOARD_DIMENSION != BOARD_DIMENSION - 1 && !isSet(blockedRight, toIndex);
+            case BOARD_DIMENSION:
+                return !isSet(blockedUp, fromIndex);
+            case -BOARD_DIMENSION:
+                return !isSet(blockedUp, toIndex);
+            default:
+                return false;
+        }
+    }
+
+    public boolean doesWallCrossAnother(Wall wall) {
+        int slot = wall.toSlot();
+        return slot >= 0 && crossesPlacedWall(slot);
+    }
+
+    public long getLegalityCheckCount() {
+        return oracle.getCheckCount();
+    }
+
+    public long getSearchCount() {
+        long searches = 0;
+        for (DistanceField field : goalFields)
+            searches += field.getSearchCount();
+        return searches;
+    }
+
+    public boolean doesWallBlockPathToGoal(Wall wall, Player player0, Player player1) {
+        int slot = wall.toSlot();
+        if (slot < 0 || isSet(walls, slot))
+            return !hasPathToGoal(player0, player1);
+        return oracle.blocksPath(slot, player0.getPosition().toIndex(), player0.getDestRow(),
+                player1.getPosition().toIndex(), player1.getDestRow());
+    }
+
+    /**
+     * Checks if the wall at the given slot is already placed, or overlaps or crosses a placed wall.
+     *
+     * @param slot The slot of the wall to check.
+     * @return True if the wall can't be placed next to the walls on the board, false otherwise.
+     */
+    boolean crossesPlacedWall(int slot) {
+        return isSet(blocked, slot);
+    }
+
+    /**
+     * Counts a wall that was added or removed in the slots it conflicts with, and updates their blocked bits.
+     *
+     * @param slot   The slot of the wall.
+     * @param change 1 if the wall was added, -1 if it was removed.
+     */
+    private void updateConflicts(int slot, int change) {
+        for (int half = 0; half < 2; half++) {
+            long conflicts = Wall.getConflicts(slot, half);
+            while (conflicts != 0) {
+                int other = (half << 6) + Long.numberOfTrailingZeros(conflicts);
+                conflicts &= conflicts - 1;
+                conflictCounts[other] += change;
+                if (conflictCounts[other] == 0)
+                    blocked[half] &= ~(1L << other);
+                else
+                    blocked[half] |= 1L << other;
+            }
+        }
+    }
+
+    /**
+     * Recalculates whether the edge above a square is blocked by any of the horizontal walls that can cover it.
+     *
+     * @param sq The index of the square below the edge.
+     */
+    private void refreshUpEdge(int sq) {
+        int row = sq / BOARD_DIMENSION;
+        int col = sq % BOARD_DIMENSION;
+        int slot = row * WALLS_PER_ROW + col;
+        if ((col < WALLS_PER_ROW && isSet(walls, slot)) || (col > 0 && isSet(walls, slot - 1)))
+            set(blockedUp, sq);
+        else
+            clear(blockedUp, sq);
+    }
+
+    /**
+     * Recalculates whether the edge to the right of a square is blocked by any of the vertical walls that can cover it.
+     *
+     * @param sq The index of the square left of the edge.
+     */
+    private void refreshRightEdge(int sq) {
+        int row = sq / BOARD_DIMENSION;
+        int col = sq % BOARD_DIMENSION;
+        int slot = HORIZONTAL_SLOTS + (row - 1) * WALLS_PER_ROW + col;
+        if ((row > 0 && isSet(walls, slot)) || (row < BOARD_DIMENSION - 1 && isSet(walls, slot + WALLS_PER_ROW)))
+            set(blockedRight, sq);
+        else
+            clear(blockedRight, sq);
+    }
+
+    /**
+     * Gets the square at the bottom left of a horizontal wall, the wall blocks the edges above it and above its right neighbor.
+     */
+    private static int squareOfHorizontalSlot(int slot) {
+        return (slot / WALLS_PER_ROW) * BOARD_DIMENSION + slot % WALLS_PER_ROW;
+    }
+
+    /**
+     * Gets the starting square of a vertical wall, the wall blocks the edges to the right of it and of the square below it.
+     */
+    private static int squareOfVerticalSlot(int slot) {
+        int i = slot - HORIZONTAL_SLOTS;
+        return (i / WALLS_PER_ROW + 1) * BOARD_DIMENSION + i % WALLS_PER_ROW;
+    }
+
+    private static boolean isSet(long[] mask, int bit) {
+        return (mask[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static void set(long[] mask, int bit) {
+        mask[bit >>> 6] |= 1L << bit;
+    }
+
+    private static void clear(long[] mask, int bit) {
+        mask[bit >>> 6] &= ~(1L << bit);
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < SQUARES; i++) {
+            result.append(i).append(" -> [");
+            String separator = "";
+            for (int j : new int[]{i - 1, i + 1, i - BOARD_DIMENSION, i + BOARD_DIMENSION}) {
+                if (isConnected(i, j)) {
+                    result.append(separator).append(Square.of(j));
+                    separator = ", ";
+                }
+            }
+            result.append("]\n");
+        }
+        return result.toString();
+    }
+}
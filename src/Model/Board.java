@@ -1,32 +1,52 @@
 package Model;
 
-import java.util.ArrayList;
+import Utilities.PathEngine;
+import Utilities.Zobrist;
+
 import java.util.LinkedList;
 import java.util.List;
 
-import static Utilities.BFS.calculateBFS;
 import static Utilities.Constants.BOARD_DIMENSION;
 
 /**
- * Represents the game board.
+ * Represents the game board as an adjacency list of squares.
+ * The placed walls are a 128 bit mask of wall slots (see {@link Wall#toSlot()}), next to a mask of the slots that
+ * conflict with a placed wall, which is updated on every wall change, so checking a wall against the placed walls
+ * is a single bit test.
  */
-public class Board {
+public class Board implements GameBoard {
     /**
      * The adjacency list representing the graph of the board.
      */
     public List<Square>[] graph;
     /**
-     * The list of walls placed on the board.
+     * The placed walls, indexed by wall slot.
+     */
+    private final long[] walls = new long[2];
+    /**
+     * The slots of the walls that are placed, or overlap or cross a placed wall (see {@link Wall#getConflicts}).
+     */
+    private final long[] blocked = new long[2];
+    /**
+     * The number of placed walls that every slot conflicts with, so a slot is only freed by removing its last conflict.
      */
-    public List<Wall> walls;
+    private final byte[] conflictCounts = new byte[Wall.WALL_SLOTS];
+    private long wallHash;
+    private long legalityChecks;
+
+    // The walls that lengthen either player's shortest path, for the walls and the squares they were calculated for.
+    private final PathDag pathDag = new PathDag();
+    private final long[] pathWalls = new long[2];
+    private long pathWallHash;
+    private int pathSquare0 = -1, pathSquare1 = -1, pathDestRow0, pathDestRow1;
+    private boolean connected;
 
     /**
      * Initializes a new instance of the Board class.
-     * Constructs the board graph and initializes the list of walls.
+     * Constructs the board graph, without walls.
      */
     public Board() {
         this.graph = new LinkedList[BOARD_DIMENSION * BOARD_DIMENSION];
-        this.walls = new LinkedList<>();
         initializeGraph();
     }
 
@@ -41,13 +61,13 @@ public class Board {
                 int i = row * BOARD_DIMENSION + col;
                 graph[i] = new LinkedList<>();
                 if (col > 0)
-                    graph[i].add(new Square(row, col - 1)); // left.
+                    graph[i].add(Square.of(row, col - 1)); // left.
                 if (col < BOARD_DIMENSION - 1)
-                    graph[i].add(new Square(row, col + 1)); // right.
+                    graph[i].add(Square.of(row, col + 1)); // right.
                 if (row > 0)
-                    graph[i].add(new Square(row - 1, col)); // up.
+                    graph[i].add(Square.of(row - 1, col)); // up.
                 if (row < BOARD_DIMENSION - 1)
-                    graph[i].add(new Square(row + 1, col)); // down.
+                    graph[i].add(Square.of(row + 1, col)); // down.
             }
         }
     }
@@ -61,29 +81,63 @@ public class Board {
      * @return True if the wall placement is valid, false otherwise.
      */
     public boolean isLegalWallPlacement(Wall wall, Player player0, Player player1) {
-        if (wall.startingSq.toIndex() >= graph.length || wall.startingSq.toIndex() < 0)
+        legalityChecks++;
+        int slot = wall.toSlot();
+        if (slot < 0 || isSet(blocked, slot))
             return false;
-        ArrayList<Wall> crossingWalls = getCrossingWalls(wall);
-        for(Wall crossingWall : crossingWalls)
-            if(walls.contains(crossingWall))
-                return false;
-        if(walls.contains(wall))
+        return !blocksPath(slot, player0, player1);
+    }
+
+    /**
+     * Checks if a wall that isn't placed cuts a player off its goal. Only a wall that lengthens a player's shortest
+     * path (see {@link PathDag}) can do that, so only those walls are added to search the board.
+     */
+    private boolean blocksPath(int slot, Player player0, Player player1) {
+        int square0 = player0.getPosition().toIndex(), square1 = player1.getPosition().toIndex();
+        if (wallHash != pathWallHash || square0 != pathSquare0 || square1 != pathSquare1
+                || player0.getDestRow() != pathDestRow0 || player1.getDestRow() != pathDestRow1) {
+            pathWallHash = wallHash;
+            pathSquare0 = square0;
+            pathSquare1 = square1;
+            pathDestRow0 = player0.getDestRow();
+            pathDestRow1 = player1.getDestRow();
+            pathWalls[0] = pathWalls[1] = 0;
+            connected = pathDag.calculate(this, square0, pathDestRow0);
+            pathDag.getLengtheningWalls(pathWalls);
+            connected &= pathDag.calculate(this, square1, pathDestRow1);
+            pathDag.getLengtheningWalls(pathWalls);
+        }
+        if (!connected)
+            return true;
+        if (!isSet(pathWalls, slot))
             return false;
-        addWall(wall);
+        addWall(slot);
         boolean hasPath = hasPathToGoal(player0, player1);
-        removeWall(wall);
-        return hasPath;
+        removeWall(slot);
+        return !hasPath;
     }
 
 
+    public void getLegalWalls(Player player0, Player player1, long[] legal) {
+        legal[0] = legal[1] = 0;
+        for (int slot = 0; slot < Wall.WALL_SLOTS; slot++)
+            if (isLegalWallPlacement(Wall.fromSlot(slot), player0, player1))
+                legal[slot >>> 6] |= 1L << slot;
+    }
+
+    public void getFreeWalls(long[] free) {
+        free[0] = ~blocked[0];
+        free[1] = ~blocked[1];
+    }
 
     /**
-     * Adds a wall to the board.
+     * Adds a wall to the board. A wall that doesn't fit on the board isn't added.
      *
      * @param wall The wall to add.
      */
     public void addWall(Wall wall) {
-        if (walls.contains(wall))
+        int slot = wall.toSlot();
+        if (slot < 0 || isSet(walls, slot))
             return;
         if (wall.getOrientation() == Wall.Orientation.HORIZONTAL) {
             removeEdge(wall.startingSq, wall.startingSq.neighbor(1, 0));
@@ -92,7 +146,9 @@ public class Board {
             removeEdge(wall.startingSq, wall.startingSq.neighbor(0, 1)); // remove connecting between startingSq and the wall to the left of it
             removeEdge(wall.startingSq.neighbor(-1, 0), wall.startingSq.neighbor(-1, 1)); // remove the connection between squares on the next rank.
         }
-        walls.add(wall);
+        walls[slot >>> 6] |= 1L << slot;
+        updateConflicts(slot, 1);
+        wallHash ^= Zobrist.wall(slot);
     }
 
     /**
@@ -118,7 +174,8 @@ public class Board {
      * @param wall The wall to remove.
      */
     public void removeWall(Wall wall) {
-        if (!walls.contains(wall))
+        int slot = wall.toSlot();
+        if (slot < 0 || !isSet(walls, slot))
             return;
         if (wall.getOrientation() == Wall.Orientation.HORIZONTAL) {
             addEdge(wall.startingSq, wall.startingSq.neighbor(1, 0));
@@ -127,7 +184,46 @@ public class Board {
             addEdge(wall.startingSq, wall.startingSq.neighbor(0, 1));
             addEdge(wall.startingSq.neighbor(-1, 0), wall.startingSq.neighbor(-1, 1));
         }
-        walls.remove(wall);
+        walls[slot >>> 6] &= ~(1L << slot);
+        updateConflicts(slot, -1);
+        wallHash ^= Zobrist.wall(slot);
+    }
+
+    /**
+     * Counts a wall that was added or removed in the slots it conflicts with, and updates their blocked bits.
+     *
+     * @param slot   The slot of the wall.
+     * @param change 1 if the wall was added, -1 if it was removed.
+     */
+    private void updateConflicts(int slot, int change) {
+        for (int half = 0; half < 2; half++) {
+            long conflicts = Wall.getConflicts(slot, half);
+            while (conflicts != 0) {
+                int other = (half << 6) + Long.numberOfTrailingZeros(conflicts);
+                conflicts &= conflicts - 1;
+                conflictCounts[other] += change;
+                if (conflictCounts[other] == 0)
+                    blocked[half] &= ~(1L << other);
+                else
+                    blocked[half] |= 1L << other;
+            }
+        }
+    }
+
+    private static boolean isSet(long[] mask, int slot) {
+        return (mask[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public boolean hasWall(int slot) {
+        return isSet(walls, slot);
+    }
+
+    public long getWalls(int half) {
+        return walls[half];
+    }
+
+    public long getWallHash() {
+        return wallHash;
     }
 
     /**
@@ -153,7 +249,9 @@ public class Board {
      * @return True if both players have a path to their goal, false otherwise.
      */
     public boolean hasPathToGoal(Player player0, Player player1) {
-        return !(calculateBFS(graph, player0.getPosition(), player0.getDestRow()).isEmpty() || calculateBFS(graph, player1.getPosition(), player1.getDestRow()).isEmpty());
+        PathEngine engine = PathEngine.get();
+        return engine.distance(this, player0.getPosition().toIndex(), player0.getDestRow()) >= 0
+                && engine.distance(this, player1.getPosition().toIndex(), player1.getDestRow()) >= 0;
     }
 
     /**
@@ -191,6 +289,15 @@ public class Board {
     }
 
 
+    public boolean isConnected(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex >= graph.length)
+            return false;
+        for (Square sq : graph[fromIndex])
+            if (sq.toIndex() == toIndex)
+                return true;
+        return false;
+    }
+
     /**
      * Checks if the specified wall intersects with other walls on the board.
      *
@@ -198,39 +305,10 @@ public class Board {
      * @return True if the wall intersects with other walls, false otherwise.
      */
     public boolean doesWallCrossAnother(Wall wall) {
-        if (wall.startingSq.toIndex() >= graph.length || wall.startingSq.toIndex() < 0)
-            return false;
-        ArrayList<Wall> crossingWalls = getCrossingWalls(wall);
-        for(Wall crossingWall : crossingWalls)
-            if(walls.contains(crossingWall))
-                return true;
-        return walls.contains(wall);
+        int slot = wall.toSlot();
+        return slot >= 0 && isSet(blocked, slot);
     }
 
-    public boolean doWallsCrossEachOther(Wall wall2, Wall wall1) {
-        ArrayList<Wall> crossingWalls = getCrossingWalls(wall2);
-        for(Wall crossingWall : crossingWalls)
-            if(wall1.equals(crossingWall))
-                return true;
-        return false;
-    }
-
-    public ArrayList<Wall> getCrossingWalls(Wall wall) {
-        ArrayList<Wall> crossingWalls = new ArrayList<>();
-        if (wall.getOrientation() == Wall.Orientation.HORIZONTAL) {
-            crossingWalls.add(wall.neighbor(1, 0, Wall.Orientation.VERTICAL));
-            crossingWalls.add(wall.neighbor(0, -1, Wall.Orientation.HORIZONTAL));
-            crossingWalls.add(wall.neighbor(0, 1, Wall.Orientation.HORIZONTAL));
-        } else {
-            crossingWalls.add(wall.neighbor(-1, 0, Wall.Orientation.HORIZONTAL));
-            crossingWalls.add(wall.neighbor(-1, 0, Wall.Orientation.VERTICAL));
-            crossingWalls.add(wall.neighbor(1, 0, Wall.Orientation.VERTICAL));
-        }
-        return crossingWalls;
-    }
-
-
-
     /**
      * Checks if placing the specified wall completely blocks a path between the two players.
      *
@@ -240,10 +318,23 @@ public class Board {
      * @return True if the wall completely blocks the path, false otherwise.
      */
     public boolean doesWallBlockPathToGoal(Wall wall, Player player0, Player player1) {
-        addWall(wall);
-        boolean hasPath = hasPathToGoal(player0, player1);
-        removeWall(wall);
-        return !hasPath;
+        int slot = wall.toSlot();
+        if (slot < 0 || isSet(walls, slot))
+            return !hasPathToGoal(player0, player1);
+        return blocksPath(slot, player0, player1);
+    }
+
+    public long getLegalityCheckCount() {
+        return legalityChecks;
+    }
+
+    /**
+     * The board searches its graph through {@link PathEngine} only, so its searches are counted there.
+     *
+     * @return Always 0.
+     */
+    public long getSearchCount() {
+        return 0;
     }
 
     public String toString() {
@@ -0,0 +1,294 @@
+package Model;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Holds the length of the shortest path from every square of a board to one destination row.
+ * The field is built once by a breadth-first search that starts from the whole destination row,
+ * and is then repaired whenever edges of the board are removed or added.
+ * A repair only visits the squares whose distance actually changes (and their direct neighbors),
+ * and since the distances only depend on the edges of the board, adding and then removing a wall
+ * restores the field exactly.
+ */
+public class DistanceField {
+    /**
+     * The distance of a square that has no path to the destination row.
+     */
+    public static final int UNREACHABLE = -1;
+
+    private static final int SQUARES = BOARD_DIMENSION * BOARD_DIMENSION;
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private final GameBoard board;
+    private final int destRow;
+    private final int[] distance = new int[SQUARES];
+
+    // Scratch buffers reused between repairs.
+    private final int[] queue = new int[SQUARES];
+    private final int[] sources = new int[SQUARES];
+    private final boolean[] marked = new boolean[SQUARES];
+    private final int[] neighbors = new int[4];
+    private long searches;
+
+    /**
+     * Constructs the distance field of a board and calculates it for the current edges of the board.
+     *
+     * @param board   The board whose edges the distances are measured on.
+     * @param destRow The row the distances are measured to.
+     */
+    public DistanceField(GameBoard board, int destRow) {
+        this.board = board;
+        this.destRow = destRow;
+        rebuild();
+    }
+
+    /**
+     * Constructs a copy of a distance field for a copy of its board.
+     *
+     * @param board The board the copy measures distances on, with the same edges as the board of the other field.
+     * @param other The field to copy.
+     */
+    public DistanceField(GameBoard board, DistanceField other) {
+        this.board = board;
+        this.destRow = other.destRow;
+        System.arraycopy(other.distance, 0, distance, 0, SQUARES);
+    }
+
+    /**
+     * Gets the number of searches that built or repaired the field, for instrumentation.
+     *
+     * @return The number of full and incremental searches.
+     */
+    public long getSearchCount() {
+        return searches;
+    }
+
+    /**
+     * Gets the length of the shortest path from a square to the destination row.
+     *
+     * @param square The index of the square.
+     * @return The number of steps to the destination row, or {@link #UNREACHABLE}.
+     */
+    public int distanceOf(int square) {
+        int d = distance[square];
+        return d >= INFINITY ? UNREACHABLE : d;
+    }
+
+    /**
+     * Gets the destination row of the field.
+     *
+     * @return The destination row.
+     */
+    public int getDestRow() {
+        return destRow;
+    }
+
+    /**
+     * Recalculates the whole field with a breadth-first search from every square of the destination row.
+     */
+    public void rebuild() {
+        searches++;
+        int head = 0, tail = 0;
+        for (int i = 0; i < SQUARES; i++)
+            distance[i] = INFINITY;
+        for (int col = 0; col < BOARD_DIMENSION; col++) {
+            int sq = destRow * BOARD_DIMENSION + col;
+            distance[sq] = 0;
+            queue[tail++] = sq;
+        }
+        while (head < tail) {
+            int curr = queue[head++];
+            int count = connectedNeighbors(curr);
+            for (int i = 0; i < count; i++) {
+                int next = neighbors[i];
+                if (distance[next] == INFINITY) {
+                    distance[next] = distance[curr] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Repairs the field after up to two edges were removed from the board.
+     * Squares that lost every neighbor one step closer to the goal are collected first,
+     * then their distances are recalculated from the squares around them that kept their distance.
+     * Pass -1 for the squares of an unused edge.
+     *
+     * @param a1 One end of the first removed edge.
+     * @param b1 The other end of the first removed edge.
+     * @param a2 One end of the second removed edge.
+     * @param b2 The other end of the second removed edge.
+     */
+    public void edgesRemoved(int a1, int b1, int a2, int b2) {
+        searches++;
+        int tail = 0;
+        tail = markIfUnsupported(a1, tail);
+        tail = markIfUnsupported(b1, tail);
+        tail = markIfUnsupported(a2, tail);
+        tail = markIfUnsupported(b2, tail);
+        if (tail == 0)
+            return;
+
+        // Every square that was only supported by a marked square loses its distance as well.
+        for (int head = 0; head < tail; head++) {
+            int curr = queue[head];
+            int count = connectedNeighbors(curr);
+            for (int i = 0; i < count; i++) {
+                int next = neighbors[i];
+                if (distance[next] == distance[curr] + 1)
+                    tail = markIfUnsupported(next, tail);
+            }
+        }
+        int affected = tail;
+
+        // Every affected square gets its best distance through a neighbor that isn't affected,
+        // those are the sources of the search, sorted by distance.
+        int sourceCount = 0;
+        for (int i = 0; i < affected; i++) {
+            int sq = queue[i];
+            int best = INFINITY;
+            int count = connectedNeighbors(sq);
+            for (int j = 0; j < count; j++) {
+                int next = neighbors[j];
+                if (!marked[next] && distance[next] + 1 < best)
+                    best = distance[next] + 1;
+            }
+            distance[sq] = best;
+            if (best < INFINITY) {
+                int k = sourceCount++;
+                while (k > 0 && distance[sources[k - 1]] > best) {
+                    sources[k] = sources[k - 1];
+                    k--;
+                }
+                sources[k] = sq;
+            }
+        }
+
+        // Merge the sorted sources with a breadth-first queue, so squares are settled in order of distance.
+        // The queue buffer is free again, the affected squares are only recognized by their mark from now on.
+        int nextSource = 0, head = 0;
+        tail = 0;
+        while (nextSource < sourceCount || head < tail) {
+            int curr;
+            if (head == tail || (nextSource < sourceCount && distance[sources[nextSource]] <= distance[queue[head]]))
+                curr = sources[nextSource++];
+            else
+                curr = queue[head++];
+            if (!marked[curr])
+                continue; // Already settled.
+            marked[curr] = false;
+            int count = connectedNeighbors(curr);
+            for (int i = 0; i < count; i++) {
+                int next = neighbors[i];
+                if (marked[next] && distance[curr] + 1 < distance[next]) {
+                    distance[next] = distance[curr] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        // Squares that weren't reached have no path left, they keep the infinite distance.
+        for (int i = 0; i < SQUARES; i++)
+            marked[i] = false;
+    }
+
+    /**
+     * Repairs the field after up to two edges were added to the board.
+     * Distances can only shrink, so they are lowered from the ends of the new edges outwards.
+     * Pass -1 for the squares of an unused edge.
+     *
+     * @param a1 One end of the first added edge.
+     * @param b1 The other end of the first added edge.
+     * @param a2 One end of the second added edge.
+     * @param b2 The other end of the second added edge.
+     */
+    public void edgesAdded(int a1, int b1, int a2, int b2) {
+        searches++;
+        int size = 0;
+        size = relaxEdge(a1, b1, size);
+        size = relaxEdge(a2, b2, size);
+        int head = 0;
+        while (size > 0) {
+            int curr = queue[head];
+            head = (head + 1) % SQUARES;
+            size--;
+            marked[curr] = false;
+            int count = connectedNeighbors(curr);
+            for (int i = 0; i < count; i++) {
+                int next = neighbors[i];
+                if (distance[curr] + 1 < distance[next]) {
+                    distance[next] = distance[curr] + 1;
+                    if (!marked[next]) {
+                        marked[next] = true;
+                        queue[(head + size++) % SQUARES] = next;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lowers the distance of either end of an added edge through the other end, and queues it if it changed.
+     *
+     * @return The new size of the queue.
+     */
+    private int relaxEdge(int a, int b, int size) {
+        if (a < 0 || b < 0 || !board.isConnected(a, b))
+            return size;
+        if (distance[a] + 1 < distance[b]) {
+            distance[b] = distance[a] + 1;
+            marked[b] = true;
+            queue[size++] = b;
+        } else if (distance[b] + 1 < distance[a]) {
+            distance[a] = distance[b] + 1;
+            marked[a] = true;
+            queue[size++] = a;
+        }
+        return size;
+    }
+
+    /**
+     * Marks a reachable square that isn't on the destination row and has no unmarked neighbor one step closer to it.
+     *
+     * @return The new size of the queue of marked squares.
+     */
+    private int markIfUnsupported(int sq, int tail) {
+        if (sq < 0 || marked[sq] || distance[sq] == 0 || distance[sq] >= INFINITY)
+            return tail;
+        int col = sq % BOARD_DIMENSION;
+        if ((col > 0 && supports(sq - 1, sq))
+                || (col < BOARD_DIMENSION - 1 && supports(sq + 1, sq))
+                || (sq >= BOARD_DIMENSION && supports(sq - BOARD_DIMENSION, sq))
+                || (sq < SQUARES - BOARD_DIMENSION && supports(sq + BOARD_DIMENSION, sq)))
+            return tail;
+        marked[sq] = true;
+        queue[tail++] = sq;
+        return tail;
+    }
+
+    /**
+     * Checks if a square is an unmarked neighbor one step closer to the destination row than the given square.
+     */
+    private boolean supports(int neighbor, int sq) {
+        return !marked[neighbor] && distance[neighbor] == distance[sq] - 1 && board.isConnected(sq, neighbor);
+    }
+
+    /**
+     * Fills the neighbors buffer with the squares a pawn can step to from the given square.
+     *
+     * @return The number of connected neighbors.
+     */
+    private int connectedNeighbors(int sq) {
+        int count = 0;
+        int col = sq % BOARD_DIMENSION;
+        if (col > 0 && board.isConnected(sq, sq - 1))
+            neighbors[count++] = sq - 1;
+        if (col < BOARD_DIMENSION - 1 && board.isConnected(sq, sq + 1))
+            neighbors[count++] = sq + 1;
+        if (sq >= BOARD_DIMENSION && board.isConnected(sq, sq - BOARD_DIMENSION))
+            neighbors[count++] = sq - BOARD_DIMENSION;
+        if (sq < SQUARES - BOARD_DIMENSION && board.isConnected(sq, sq + BOARD_DIMENSION))
+            neighbors[count++] = sq + BOARD_DIMENSION;
+        return count;
+    }
+}
@@ -0,0 +1,265 @@
+package Model;
+
+import Utilities.PathEngine;
+
+import java.util.ArrayList;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * The operations of a game board that the game rules and the AI rely on.
+ * Implemented by the adjacency list {@link Board} and by the bit mask {@link BitBoard}.
+ */
+public interface GameBoard {
+
+    /**
+     * Checks if placing the specified wall is a valid move without blocking the players' paths to their goals.
+     *
+     * @param wall    The wall to check.
+     * @param player0 The first player.
+     * @param player1 The second player.
+     * @return True if the wall placement is valid, false otherwise.
+     */
+    boolean isLegalWallPlacement(Wall wall, Player player0, Player player1);
+
+    /**
+     * Checks if placing the wall at the given slot is a valid move without blocking the players' paths to their goals.
+     *
+     * @param slot    The slot of the wall (see {@link Wall#toSlot()}).
+     * @param player0 The first player.
+     * @param player1 The second player.
+     * @return True if the wall placement is valid, false otherwise.
+     */
+    default boolean isLegalWallPlacement(int slot, Player player0, Player player1) {
+        return isLegalWallPlacement(Wall.fromSlot(slot), player0, player1);
+    }
+
+    /**
+     * Calculates every legal wall placement at once.
+     *
+     * @param player0 The first player.
+     * @param player1 The second player.
+     * @param legal   A mask of two longs that receives the slots (see {@link Wall#toSlot()}) of the legal walls.
+     */
+    void getLegalWalls(Player player0, Player player1, long[] legal);
+
+    /**
+     * Calculates every wall that doesn't overlap or cross a placed wall, whether or not it blocks a player.
+     *
+     * @param free A mask of two longs that receives the slots (see {@link Wall#toSlot()}) of the free walls.
+     */
+    void getFreeWalls(long[] free);
+
+    /**
+     * Adds a wall to the board.
+     *
+     * @param wall The wall to add.
+     */
+    void addWall(Wall wall);
+
+    /**
+     * Removes a wall from the board.
+     *
+     * @param wall The wall to remove.
+     */
+    void removeWall(Wall wall);
+
+    /**
+     * Adds the wall at the given slot to the board.
+     *
+     * @param slot The slot of the wall to add (see {@link Wall#toSlot()}).
+     */
+    default void addWall(int slot) {
+        addWall(Wall.fromSlot(slot));
+    }
+
+    /**
+     * Removes the wall at the given slot from the board.
+     *
+     * @param slot The slot of the wall to remove (see {@link Wall#toSlot()}).
+     */
+    default void removeWall(int slot) {
+        removeWall(Wall.fromSlot(slot));
+    }
+
+    /**
+     * Checks if there is a path from each player's current position to their respective goal positions.
+     *
+     * @param player0 The first player.
+     * @param player1 The second player.
+     * @return True if both players have a path to their goal, false otherwise.
+     */
+    boolean hasPathToGoal(Player player0, Player player1);
+
+    /**
+     * Checks if a traversal to the destination square is valid for the current player, considering the other player's position.
+     *
+     * @param currentSquare     The current player's position.
+     * @param newSquare         The destination square.
+     * @param otherPlayerSquare The other player's position.
+     * @return True if the traversal is valid, false otherwise.
+     */
+    boolean isLegalTraversal(Square currentSquare, Square newSquare, Square otherPlayerSquare);
+
+    /**
+     * Checks if two squares are adjacent and no wall stands between them.
+     *
+     * @param fromIndex The index of the first square.
+     * @param toIndex   The index of the second square.
+     * @return True if a pawn can step directly from one square to the other, false otherwise.
+     */
+    boolean isConnected(int fromIndex, int toIndex);
+
+    /**
+     * Checks if the wall at the given slot is placed on the board.
+     *
+     * @param slot The slot of the wall (see {@link Wall#toSlot()}).
+     * @return True if the wall is placed, false otherwise.
+     */
+    boolean hasWall(int slot);
+
+    /**
+     * Gets half of the mask of placed walls: bit i of half h is set when the wall at slot h * 64 + i is placed.
+     *
+     * @param half 0 for the horizontal walls, 1 for the vertical walls.
+     * @return The mask of the placed walls of that half.
+     */
+    default long getWalls(int half) {
+        long mask = 0;
+        for (int i = 0; i < Long.SIZE; i++)
+            if (hasWall(half * Long.SIZE + i))
+                mask |= 1L << i;
+        return mask;
+    }
+
+    /**
+     * Gets the Zobrist hash of the walls placed on the board, updated on every wall change.
+     *
+     * @return The XOR of the keys of the placed walls.
+     */
+    long getWallHash();
+
+    /**
+     * Gets the length of the shortest path from a square to the destination row.
+     *
+     * @param square  The index of the square.
+     * @param destRow The row to reach.
+     * @return The number of steps in the shortest path, or {@link DistanceField#UNREACHABLE} if the row can't be reached.
+     */
+    default int distanceToGoal(int square, int destRow) {
+        return PathEngine.get().distance(this, square, destRow);
+    }
+
+    /**
+     * Calculates the shortest-path DAG from a square to the destination row, which tells the walls that can lengthen
+     * the path without placing them (see {@link PathDag}).
+     *
+     * @param square  The index of the square.
+     * @param destRow The row to reach.
+     * @param dag     The DAG to calculate.
+     * @return True if the destination row is reachable, false otherwise.
+     */
+    default boolean getPathDag(int square, int destRow, PathDag dag) {
+        return dag.calculate(this, square, destRow);
+    }
+
+    /**
+     * Finds the length of the shortest path from a square to the destination row after each wall is added on its own.
+     * Every wall that fits between the placed walls is added, measured and removed again, even if it would cut a
+     * player off.
+     *
+     * @param square    The index of the square.
+     * @param destRow   The row to reach.
+     * @param distances An array of {@link Wall#WALL_SLOTS} ints that receives, per slot, the distance with that wall
+     *                  added, or {@link DistanceField#UNREACHABLE}. A wall that is placed or crosses a placed wall
+     *                  gets the current distance.
+     */
+    default void getWallDistances(int square, int destRow, int[] distances) {
+        int distance = distanceToGoal(square, destRow);
+        for (int slot = 0; slot < Wall.WALL_SLOTS; slot++) {
+            if (doesWallCrossAnother(Wall.fromSlot(slot))) {
+                distances[slot] = distance;
+                continue;
+            }
+            addWall(slot);
+            distances[slot] = distanceToGoal(square, destRow);
+            removeWall(slot);
+        }
+    }
+
+    /**
+     * Checks if the specified wall intersects with other walls on the board.
+     *
+     * @param wall The wall to check.
+     * @return True if the wall intersects with other walls, false otherwise.
+     */
+    boolean doesWallCrossAnother(Wall wall);
+
+    /**
+     * Checks if placing the specified wall completely blocks a path between the two players.
+     *
+     * @param wall    The wall to check.
+     * @param player0 The first player.
+     * @param player1 The second player.
+     * @return True if the wall completely blocks the path, false otherwise.
+     */
+    boolean doesWallBlockPathToGoal(Wall wall, Player player0, Player player1);
+
+    /**
+     * Gets the number of wall placements the board judged legal or illegal, for instrumentation.
+     *
+     * @return The number of legality checks since the board was created.
+     */
+    long getLegalityCheckCount();
+
+    /**
+     * Gets the number of breadth-first searches, full or incremental, that the board ran on its own data,
+     * for instrumentation. Searches that go through {@link PathEngine} are counted by the engine.
+     *
+     * @return The number of searches since the board was created.
+     */
+    long getSearchCount();
+
+    /**
+     * Checks if two squares are on the board, adjacent and no wall stands between them.
+     *
+     * @param from The first square.
+     * @param to   The second square.
+     * @return True if a pawn can step directly from one square to the other, false otherwise.
+     */
+    default boolean isConnected(Square from, Square to) {
+        return isOnBoard(from) && isOnBoard(to) && isConnected(from.toIndex(), to.toIndex());
+    }
+
+    default boolean doWallsCrossEachOther(Wall wall2, Wall wall1) {
+        ArrayList<Wall> crossingWalls = getCrossingWalls(wall2);
+        for(Wall crossingWall : crossingWalls)
+            if(wall1.equals(crossingWall))
+                return true;
+        return false;
+    }
+
+    default ArrayList<Wall> getCrossingWalls(Wall wall) {
+        ArrayList<Wall> crossingWalls = new ArrayList<>();
+        if (wall.getOrientation() == Wall.Orientation.HORIZONTAL) {
+            crossingWalls.add(wall.neighbor(1, 0, Wall.Orientation.VERTICAL));
+            crossingWalls.add(wall.neighbor(0, -1, Wall.Orientation.HORIZONTAL));
+            crossingWalls.add(wall.neighbor(0, 1, Wall.Orientation.HORIZONTAL));
+        } else {
+            crossingWalls.add(wall.neighbor(-1, 0, Wall.Orientation.HORIZONTAL));
+            crossingWalls.add(wall.neighbor(-1, 0, Wall.Orientation.VERTICAL));
+            crossingWalls.add(wall.neighbor(1, 0, Wall.Orientation.VERTICAL));
+        }
+        return crossingWalls;
+    }
+
+    /**
+     * Checks if a square lies within the bounds of the board.
+     *
+     * @param sq The square to check.
+     * @return True if the square is on the board, false otherwise.
+     */
+    static boolean isOnBoard(Square sq) {
+        return sq.getRow() >= 0 && sq.getRow() < BOARD_DIMENSION && sq.getCol() >= 0 && sq.getCol() < BOARD_DIMENSION;
+    }
+}
@@ -0,0 +1,196 @@
+package Model;
+
+import Utilities.Zobrist;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * An immutable snapshot of a game: the placed walls as a 128 bit mask of wall slots (see {@link Wall#toSlot()}),
+ * the squares and destination rows of both pawns, both wall counts, the side to move and the number of moves made.
+ * A snapshot holds only primitives, so taking one costs a few field copies and any number of threads can read it
+ * without locks while the game goes on.
+ */
+public final class GameState {
+    private final long walls0;
+    private final long walls1;
+    private final int square0;
+    private final int square1;
+    private final int destRow0;
+    private final int destRow1;
+    private final int wallsLeft0;
+    private final int wallsLeft1;
+    private final int turn;
+    private final int moveCount;
+    private final long zobristKey;
+
+    /**
+     * Constructs a snapshot of a game.
+     *
+     * @param walls0     The placed horizontal walls, bit i for slot i.
+     * @param walls1     The placed vertical walls, bit i for slot 64 + i.
+     * @param square0    The square index (row * 9 + col) of the first player.
+     * @param destRow0   The destination row of the first player.
+     * @param wallsLeft0 The walls the first player has left.
+     * @param square1    The square index of the second player.
+     * @param destRow1   The destination row of the second player.
+     * @param wallsLeft1 The walls the second player has left.
+     * @param turn       The ID of the player to move.
+     * @param moveCount  The number of moves made so far.
+     */
+    public GameState(long walls0, long walls1, int square0, int destRow0, int wallsLeft0,
+                     int square1, int destRow1, int wallsLeft1, int turn, int moveCount) {
+        this.walls0 = walls0;
+        this.walls1 = walls1;
+        this.square0 = square0;
+        this.destRow0 = destRow0;
+        this.wallsLeft0 = wallsLeft0;
+        this.square1 = square1;
+        this.destRow1 = destRow1;
+        this.wallsLeft1 = wallsLeft1;
+        this.turn = turn;
+        this.moveCount = moveCount;
+        this.zobristKey = wallHash(walls0, 0) ^ wallHash(walls1, Long.SIZE)
+                ^ Zobrist.pawn(0, square0) ^ Zobrist.pawn(1, square1)
+                ^ Zobrist.wallsLeft(0, wallsLeft0) ^ Zobrist.wallsLeft(1, wallsLeft1)
+                ^ Zobrist.side(turn);
+    }
+
+    private static long wallHash(long walls, int firstSlot) {
+        long hash = 0;
+        while (walls != 0) {
+            hash ^= Zobrist.wall(firstSlot + Long.numberOfTrailingZeros(walls));
+            walls &= walls - 1;
+        }
+        return hash;
+    }
+
+    /**
+     * Checks if the wall at the given slot is placed.
+     *
+     * @param slot The slot of the wall.
+     * @return True if the wall is placed, false otherwise.
+     */
+    public boolean hasWall(int slot) {
+        long walls = slot < Long.SIZE ? walls0 : walls1;
+        return (walls >>> (slot & (Long.SIZE - 1)) & 1) != 0;
+    }
+
+    /**
+     * Gets half of the mask of placed walls, see {@link GameBoard#getWalls(int)}.
+     *
+     * @param half 0 for the horizontal walls, 1 for the vertical walls.
+     * @return The mask of the placed walls of that half.
+     */
+    public long getWalls(int half) {
+        return half == 0 ? walls0 : walls1;
+    }
+
+    /**
+     * Gets the number of placed walls.
+     *
+     * @return The number of placed walls.
+     */
+    public int getWallCount() {
+        return Long.bitCount(walls0) + Long.bitCount(walls1);
+    }
+
+    /**
+     * Gets the square of a player.
+     *
+     * @param id The ID of the player.
+     * @return The square index (row * 9 + col).
+     */
+    public int getSquare(int id) {
+        return id == 0 ? square0 : square1;
+    }
+
+    /**
+     * Gets the destination row of a player.
+     *
+     * @param id The ID of the player.
+     * @return The destination row.
+     */
+    public int getDestRow(int id) {
+        return id == 0 ? destRow0 : destRow1;
+    }
+
+    /**
+     * Gets the number of walls a player has left.
+     *
+     * @param id The ID of the player.
+     * @return The number of walls left.
+     */
+    public int getWallsLeft(int id) {
+        return id == 0 ? wallsLeft0 : wallsLeft1;
+    }
+
+    /**
+     * Gets the ID of the player to move.
+     *
+     * @return The ID of the player to move.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets the number of moves made before this snapshot.
+     *
+     * @return The number of moves made.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Gets the winner of the game.
+     *
+     * @return The ID of the player who reached their goal, or -1 if the game isn't over.
+     */
+    public int getWinner() {
+        if (square0 / BOARD_DIMENSION == destRow0)
+            return 0;
+        if (square1 / BOARD_DIMENSION == destRow1)
+            return 1;
+        return -1;
+    }
+
+    /**
+     * Gets the Zobrist hash of the snapshot, equal to the hash of the game it was taken of.
+     *
+     * @return The hash of the game state.
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Builds a new board with the walls of the snapshot, for a reader that needs paths or legal moves.
+     *
+     * @return A new board that belongs to the caller.
+     */
+    public BitBoard toBoard() {
+        BitBoard board = new BitBoard();
+        for (int half = 0; half < 2; half++) {
+            long walls = getWalls(half);
+            while (walls != 0) {
+                board.addWall(half * Long.SIZE + Long.numberOfTrailingZeros(walls));
+                walls &= walls - 1;
+            }
+        }
+        return board;
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GameState state = (GameState) o;
+        return walls0 == state.walls0 && walls1 == state.walls1 && square0 == state.square0 && square1 == state.square1
+                && destRow0 == state.destRow0 && destRow1 == state.destRow1 && wallsLeft0 == state.wallsLeft0
+                && wallsLeft1 == state.wallsLeft1 && turn == state.turn && moveCount == state.moveCount;
+    }
+
+    public int hashCode() {
+        return Long.hashCode(zobristKey) * 31 + moveCount;
+    }
+}
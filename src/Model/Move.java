@@ -0,0 +1,149 @@
+package Model;
+
+import java.util.regex.Pattern;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Encodes moves as small integers.
+ * A pawn move is the index of the target square (0-80) and a wall move is 81 plus the slot of the wall (81-208),
+ * so every move fits in a short and the game and the AIs can pass moves around without strings.
+ */
+public abstract class Move {
+    /**
+     * Marks the absence of a move.
+     */
+    public static final int NONE = -1;
+    /**
+     * The code of the first wall move.
+     */
+    public static final int WALL_OFFSET = BOARD_DIMENSION * BOARD_DIMENSION;
+    /**
+     * The number of distinct move codes.
+     */
+    public static final int COUNT = WALL_OFFSET + Wall.WALL_SLOTS;
+
+    /**
+     * The game's notation: a square, a horizontal wall by its lower left square or a vertical wall by its upper left square.
+     */
+    private static final Pattern NOTATION = Pattern.compile("[a-i][1-9]|[a-h][1-8]h|[a-h][2-9]v");
+    private static final int WALLS_PER_ROW = BOARD_DIMENSION - 1;
+
+    /**
+     * Encodes a pawn move.
+     *
+     * @param square The index of the target square.
+     * @return The move code.
+     */
+    public static int pawn(int square) {
+        return square;
+    }
+
+    /**
+     * Encodes a wall move.
+     *
+     * @param slot The slot of the wall.
+     * @return The move code.
+     */
+    public static int wall(int slot) {
+        return WALL_OFFSET + slot;
+    }
+
+    /**
+     * Checks if a move places a wall.
+     *
+     * @param move The move code.
+     * @return True for a wall move, false for a pawn move.
+     */
+    public static boolean isWall(int move) {
+        return move >= WALL_OFFSET;
+    }
+
+    /**
+     * Gets the target square of a pawn move.
+     *
+     * @param move The move code of a pawn move.
+     * @return The index of the target square.
+     */
+    public static int square(int move) {
+        return move;
+    }
+
+    /**
+     * Gets the wall slot of a wall move.
+     *
+     * @param move The move code of a wall move.
+     * @return The slot of the wall.
+     */
+    public static int slot(int move) {
+        return move - WALL_OFFSET;
+    }
+
+    /**
+     * Encodes a move written in the game's notation, e.g. "e2" or "e3h".
+     *
+     * @param move The move string.
+     * @return The move code, or {@link #NONE} if the string isn't a move on the board.
+     */
+    public static int fromString(String move) {
+        if (move == null || !NOTATION.matcher(move).matches())
+            return NONE;
+        int col = move.charAt(0) - 'a';
+        int row = move.charAt(1) - '1';
+        if (move.length() == 2)
+            return pawn(row * BOARD_DIMENSION + col);
+        if (move.charAt(2) == 'h')
+            return wall(row * WALLS_PER_ROW + col);
+        return wall(Wall.WALL_SLOTS / 2 + (row - 1) * WALLS_PER_ROW + col);
+    }
+
+    /**
+     * Writes a move in the game's notation.
+     *
+     * @param move The move code.
+     * @return The move string, e.g. "e2" or "e3h".
+     */
+    public static String toString(int move) {
+        if (!isWall(move))
+            return new String(new char[]{(char) ('a' + move % BOARD_DIMENSION), (char) ('1' + move / BOARD_DIMENSION)});
+        int slot = slot(move);
+        if (slot < Wall.WALL_SLOTS / 2)
+            return new String(new char[]{(char) ('a' + slot % WALLS_PER_ROW), (char) ('1' + slot / WALLS_PER_ROW), 'h'});
+        slot -= Wall.WALL_SLOTS / 2;
+        return new String(new char[]{(char) ('a' + slot % WALLS_PER_ROW), (char) ('2' + slot / WALLS_PER_ROW), 'v'});
+    }
+
+    /**
+     * Gets the row of the square a move refers to: the target square of a pawn move,
+     * the lower left square of a horizontal wall or the upper left square of a vertical wall.
+     *
+     * @param move The move code.
+     * @return The row index, 0-8.
+     */
+    public static int row(int move) {
+        if (!isWall(move))
+            return move / BOARD_DIMENSION;
+        int slot = slot(move);
+        return slot < Wall.WALL_SLOTS / 2 ? slot / WALLS_PER_ROW : (slot - Wall.WALL_SLOTS / 2) / WALLS_PER_ROW + 1;
+    }
+
+    /**
+     * Gets the column of the square a move refers to, see {@link #row(int)}.
+     *
+     * @param move The move code.
+     * @return The column index, 0-8.
+     */
+    public static int col(int move) {
+        return isWall(move) ? slot(move) % WALLS_PER_ROW : move % BOARD_DIMENSION;
+    }
+
+    /**
+     * Checks if a wall move places a horizontal wall.
+     *
+     * @param move The move code of a wall move.
+     * @return True for a horizontal wall, false for a vertical wall.
+     */
+    public static boolean isHorizontal(int move) {
+        return slot(move) < Wall.WALL_SLOTS / 2;
+    }
+}
@@ -0,0 +1,69 @@
+package Model;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Generates the legal pawn moves of a player without allocating: the neighbors of every square are looked up in
+ * tables built once, and the walls are checked through the board's edges.
+ * Squares are indexes (row * 9 + col), which are also the move codes of pawn moves (see {@link Move}).
+ */
+public abstract class MoveGenerator {
+    /**
+     * The most pawn moves a player can have: three steps and two diagonal jumps, or four steps with one straight jump.
+     */
+    public static final int MAX_PAWN_MOVES = 5;
+
+    private static final int SQUARES = BOARD_DIMENSION * BOARD_DIMENSION;
+    // The directions, in pairs along the same axis: left, right, down a row, up a row.
+    private static final int DIRECTIONS = 4;
+    // The neighbor of every square in every direction, -1 off the board.
+    private static final int[] NEIGHBORS = new int[SQUARES * DIRECTIONS];
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int row = sq / BOARD_DIMENSION, col = sq % BOARD_DIMENSION;
+            NEIGHBORS[sq * DIRECTIONS] = col > 0 ? sq - 1 : -1;
+            NEIGHBORS[sq * DIRECTIONS + 1] = col < BOARD_DIMENSION - 1 ? sq + 1 : -1;
+            NEIGHBORS[sq * DIRECTIONS + 2] = row > 0 ? sq - BOARD_DIMENSION : -1;
+            NEIGHBORS[sq * DIRECTIONS + 3] = row < BOARD_DIMENSION - 1 ? sq + BOARD_DIMENSION : -1;
+        }
+    }
+
+    /**
+     * Fills a buffer with the squares a pawn can step or jump to, by the same rules as
+     * {@link GameBoard#isLegalTraversal(Square, Square, Square)}: a step to a free neighbor, a straight jump over the
+     * other pawn, or a diagonal jump when a wall or the edge of the board is behind the other pawn.
+     *
+     * @param board       The board with the placed walls.
+     * @param square      The square of the moving pawn.
+     * @param otherSquare The square of the other pawn.
+     * @param moves       The buffer that receives the target squares, with room for {@link #MAX_PAWN_MOVES} moves.
+     * @return The number of pawn moves.
+     */
+    public static int generatePawnMoves(GameBoard board, int square, int otherSquare, int[] moves) {
+        int count = 0;
+        for (int dir = 0; dir < DIRECTIONS; dir++) {
+            int next = NEIGHBORS[square * DIRECTIONS + dir];
+            if (next < 0 || !board.isConnected(square, next))
+                continue;
+            if (next != otherSquare) {
+                moves[count++] = next;
+                continue;
+            }
+            int behind = NEIGHBORS[otherSquare * DIRECTIONS + dir];
+            if (behind >= 0 && board.isConnected(otherSquare, behind)) {
+                // Straight jump over the other player.
+                moves[count++] = behind;
+                continue;
+            }
+            // There is a back wall or the edge of the board, so the squares on the sides of the other player are reachable.
+            int firstSide = dir < 2 ? 2 : 0;
+            for (int side = firstSide; side < firstSide + 2; side++) {
+                int diagonal = NEIGHBORS[otherSquare * DIRECTIONS + side];
+                if (diagonal >= 0 && board.isConnected(otherSquare, diagonal))
+                    moves[count++] = diagonal;
+            }
+        }
+        return count;
+    }
+}
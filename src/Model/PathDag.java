@@ -0,0 +1,324 @@
+package Model;
+
+import java.util.Arrays;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * The shortest-path DAG from a square to a destination row: every edge between two squares that lies on some
+ * shortest path of a pawn alone on the board, directed towards the goal.
+ * <p>
+ * The DAG tells which walls can lengthen the path without placing them. Each shortest path crosses every layer of
+ * the DAG (the edges that lead from distance d + 1 to distance d) exactly once, so the paths are counted through
+ * every edge, and a wall lengthens the path only if the paths through the edges it blocks add up to all the paths.
+ * A path can take both edges of a wall when it winds around the wall, and those paths are counted once.
+ * An edge that carries every path is a cut edge, the only edge of its layer.
+ * Walls that block no edge of the DAG, or only some of the paths, leave the distance as it is.
+ * <p>
+ * A DAG is calculated for the edges of a board at one moment, and can be recalculated for other boards and squares.
+ */
+public final class PathDag {
+    private static final int SQUARES = BOARD_DIMENSION * BOARD_DIMENSION;
+    private static final int WALLS_PER_ROW = BOARD_DIMENSION - 1;
+    private static final int HORIZONTAL_SLOTS = Wall.WALL_SLOTS / 2;
+    private static final int MAX_EDGES = 4 * SQUARES;
+
+    private int distance = DistanceField.UNREACHABLE;
+    private long paths;
+
+    private final int[] goalDistances = new int[SQUARES];
+    private final int[] queue = new int[SQUARES];
+    // The number of shortest paths from the start square to every square, and from every square to the goal.
+    private final long[] pathsFrom = new long[SQUARES];
+    private final long[] pathsTo = new long[SQUARES];
+    private final int[] edgeFrom = new int[MAX_EDGES];
+    private final int[] edgeTo = new int[MAX_EDGES];
+    private int edgeCount;
+    // The edges of the DAG that each wall slot blocks, two per slot, -1 where an edge isn't in the DAG.
+    private final int[] wallEdges = new int[2 * Wall.WALL_SLOTS];
+    // The number of paths from one square of the DAG to every square, for the walls that two paths wind around.
+    private final long[] between = new long[SQUARES];
+
+    // Edges as 81 bit masks: the edge above every square and the edge to the right of every square.
+    private final long[] upEdges = new long[2];
+    private final long[] rightEdges = new long[2];
+    private final long[] cutUpEdges = new long[2];
+    private final long[] cutRightEdges = new long[2];
+    // Wall slots as 128 bit masks.
+    private final long[] touchingWalls = new long[2];
+    private final long[] lengtheningWalls = new long[2];
+
+    /**
+     * Calculates the shortest-path DAG from a square to the destination row on the current edges of a board,
+     * measuring the distances to the row with a breadth-first search.
+     *
+     * @param board   The board whose edges are walked.
+     * @param square  The index of the square the paths start at.
+     * @param destRow The row to reach.
+     * @return True if the destination row is reachable, false otherwise, in which case the DAG is empty.
+     */
+    public boolean calculate(GameBoard board, int square, int destRow) {
+        calculateGoalDistances(board, destRow);
+        return calculateDag(board, square, destRow);
+    }
+
+    /**
+     * Calculates the shortest-path DAG from a square to the destination row of a distance field that is up to date
+     * with the edges of the board, reading the distances from the field instead of searching.
+     *
+     * @param board  The board whose edges are walked.
+     * @param field  The distance field of the board to the destination row.
+     * @param square The index of the square the paths start at.
+     * @return True if the destination row is reachable, false otherwise, in which case the DAG is empty.
+     */
+    public boolean calculate(GameBoard board, DistanceField field, int square) {
+        for (int sq = 0; sq < SQUARES; sq++)
+            goalDistances[sq] = field.distanceOf(sq);
+        return calculateDag(board, square, field.getDestRow());
+    }
+
+    private boolean calculateDag(GameBoard board, int square, int destRow) {
+        upEdges[0] = upEdges[1] = rightEdges[0] = rightEdges[1] = 0;
+        cutUpEdges[0] = cutUpEdges[1] = cutRightEdges[0] = cutRightEdges[1] = 0;
+        touchingWalls[0] = touchingWalls[1] = lengtheningWalls[0] = lengtheningWalls[1] = 0;
+        edgeCount = 0;
+        paths = 0;
+        distance = goalDistances[square];
+        if (distance == DistanceField.UNREACHABLE)
+            return false;
+
+        // Walk forward from the square, one layer after another, keeping the edges that go one step closer.
+        Arrays.fill(pathsFrom, 0);
+        pathsFrom[square] = 1;
+        int head = 0, tail = 0;
+        queue[tail++] = square;
+        while (head < tail) {
+            int sq = queue[head++];
+            int col = sq % BOARD_DIMENSION;
+            if (col > 0)
+                tail = addEdge(board, sq, sq - 1, tail);
+            if (col < BOARD_DIMENSION - 1)
+                tail = addEdge(board, sq, sq + 1, tail);
+            if (sq >= BOARD_DIMENSION)
+                tail = addEdge(board, sq, sq - BOARD_DIMENSION, tail);
+            if (sq < SQUARES - BOARD_DIMENSION)
+                tail = addEdge(board, sq, sq + BOARD_DIMENSION, tail);
+        }
+
+        // Count the paths to the goal backwards, the edges were found layer by layer.
+        Arrays.fill(pathsTo, 0);
+        for (int col = 0; col < BOARD_DIMENSION; col++)
+            pathsTo[destRow * BOARD_DIMENSION + col] = 1;
+        for (int edge = edgeCount - 1; edge >= 0; edge--)
+            pathsTo[edgeFrom[edge]] += pathsTo[edgeTo[edge]];
+        paths = pathsTo[square];
+
+        Arrays.fill(wallEdges, -1);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int from = edgeFrom[edge], to = edgeTo[edge];
+            int low = Math.min(from, to);
+            boolean up = Math.abs(to - from) == BOARD_DIMENSION;
+            set(up ? upEdges : rightEdges, low);
+            if (pathsThrough(edge) == paths)
+                set(up ? cutUpEdges : cutRightEdges, low);
+            int row = low / BOARD_DIMENSION, col = low % BOARD_DIMENSION;
+            if (up) {
+                int slot = row * WALLS_PER_ROW + col;
+                if (col < WALLS_PER_ROW)
+                    addWallEdge(slot, edge);
+                if (col > 0)
+                    addWallEdge(slot - 1, edge);
+            } else {
+                int slot = HORIZONTAL_SLOTS + (row - 1) * WALLS_PER_ROW + col;
+                if (row > 0)
+                    addWallEdge(slot, edge);
+                if (row < BOARD_DIMENSION - 1)
+                    addWallEdge(slot + WALLS_PER_ROW, edge);
+            }
+        }
+        for (int slot = 0; slot < Wall.WALL_SLOTS; slot++)
+            if (blocksEveryPath(wallEdges[2 * slot], wallEdges[2 * slot + 1]))
+                set(lengtheningWalls, slot);
+        return true;
+    }
+
+    /**
+     * A breadth-first search from the whole destination row.
+     */
+    private void calculateGoalDistances(GameBoard board, int destRow) {
+        Arrays.fill(goalDistances, DistanceField.UNREACHABLE);
+        int head = 0, tail = 0;
+        for (int col = 0; col < BOARD_DIMENSION; col++) {
+            goalDistances[destRow * BOARD_DIMENSION + col] = 0;
+            queue[tail++] = destRow * BOARD_DIMENSION + col;
+        }
+        while (head < tail) {
+            int sq = queue[head++];
+            int col = sq % BOARD_DIMENSION;
+            if (col > 0)
+                tail = visit(board, sq, sq - 1, tail);
+            if (col < BOARD_DIMENSION - 1)
+                tail = visit(board, sq, sq + 1, tail);
+            if (sq >= BOARD_DIMENSION)
+                tail = visit(board, sq, sq - BOARD_DIMENSION, tail);
+            if (sq < SQUARES - BOARD_DIMENSION)
+                tail = visit(board, sq, sq + BOARD_DIMENSION, tail);
+        }
+    }
+
+    private int visit(GameBoard board, int sq, int next, int tail) {
+        if (goalDistances[next] == DistanceField.UNREACHABLE && board.isConnected(sq, next)) {
+            goalDistances[next] = goalDistances[sq] + 1;
+            queue[tail++] = next;
+        }
+        return tail;
+    }
+
+    private int addEdge(GameBoard board, int sq, int next, int tail) {
+        if (goalDistances[next] != goalDistances[sq] - 1 || !board.isConnected(sq, next))
+            return tail;
+        edgeFrom[edgeCount] = sq;
+        edgeTo[edgeCount++] = next;
+        if (pathsFrom[next] == 0)
+            queue[tail++] = next;
+        pathsFrom[next] += pathsFrom[sq];
+        return tail;
+    }
+
+    private void addWallEdge(int slot, int edge) {
+        set(touchingWalls, slot);
+        wallEdges[wallEdges[2 * slot] < 0 ? 2 * slot : 2 * slot + 1] = edge;
+    }
+
+    private long pathsThrough(int edge) {
+        return pathsFrom[edgeFrom[edge]] * pathsTo[edgeTo[edge]];
+    }
+
+    /**
+     * Checks if every shortest path takes one of two edges, by counting the paths through either of them.
+     */
+    private boolean blocksEveryPath(int edge1, int edge2) {
+        if (edge1 < 0)
+            return false;
+        long through1 = pathsThrough(edge1);
+        if (edge2 < 0 || through1 == paths)
+            return through1 == paths;
+        long through2 = pathsThrough(edge2);
+        if (through2 == paths || through1 + through2 < paths)
+            return through2 == paths;
+        // Take off the paths that go through both edges, one after the other.
+        if (goalDistances[edgeTo[edge1]] < goalDistances[edgeFrom[edge2]]) {
+            int swap = edge1;
+            edge1 = edge2;
+            edge2 = swap;
+        }
+        long both = pathsFrom[edgeFrom[edge1]] * countPaths(edgeTo[edge1], edgeFrom[edge2]) * pathsTo[edgeTo[edge2]];
+        return through1 + through2 - both == paths;
+    }
+
+    /**
+     * Counts the paths of the DAG from one square to another, following the edges in the order they were found.
+     */
+    private long countPaths(int from, int to) {
+        if (from == to)
+            return 1;
+        if (goalDistances[from] <= goalDistances[to])
+            return 0;
+        Arrays.fill(between, 0);
+        between[from] = 1;
+        for (int edge = 0; edge < edgeCount; edge++)
+            between[edgeTo[edge]] += between[edgeFrom[edge]];
+        return between[to];
+    }
+
+    /**
+     * Gets the length of the shortest paths.
+     *
+     * @return The number of steps, or {@link DistanceField#UNREACHABLE} if the destination row can't be reached.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Gets the number of distinct shortest paths.
+     *
+     * @return The number of paths, 0 if the destination row can't be reached.
+     */
+    public long getPathCount() {
+        return paths;
+    }
+
+    /**
+     * Checks if the edge between two adjacent squares lies on some shortest path.
+     *
+     * @param from The index of one square.
+     * @param to   The index of the other square.
+     * @return True if the edge is in the DAG, false otherwise.
+     */
+    public boolean isDagEdge(int from, int to) {
+        return isEdgeIn(from, to, upEdges, rightEdges);
+    }
+
+    /**
+     * Checks if the edge between two adjacent squares lies on every shortest path.
+     *
+     * @param from The index of one square.
+     * @param to   The index of the other square.
+     * @return True if the edge is a cut edge of the DAG, false otherwise.
+     */
+    public boolean isCutEdge(int from, int to) {
+        return isEdgeIn(from, to, cutUpEdges, cutRightEdges);
+    }
+
+    /**
+     * Adds the wall slots that block at least one edge of the DAG to a mask.
+     *
+     * @param walls A mask of two longs that the slots are added to.
+     */
+    public void getTouchingWalls(long[] walls) {
+        walls[0] |= touchingWalls[0];
+        walls[1] |= touchingWalls[1];
+    }
+
+    /**
+     * Adds the wall slots that block every shortest path to a mask. These are exactly the walls that lengthen
+     * the path or cut the square off the destination row, whether they fit between the placed walls or not.
+     *
+     * @param walls A mask of two longs that the slots are added to.
+     */
+    public void getLengtheningWalls(long[] walls) {
+        walls[0] |= lengtheningWalls[0];
+        walls[1] |= lengtheningWalls[1];
+    }
+
+    /**
+     * Checks if the wall at the given slot would block every shortest path.
+     *
+     * @param slot The slot of the wall (see {@link Wall#toSlot()}).
+     * @return True if the wall lengthens the path or cuts it off, false if the distance stays the same.
+     */
+    public boolean canLengthen(int slot) {
+        return (lengtheningWalls[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private static boolean isEdgeIn(int from, int to, long[] up, long[] right) {
+        int low = Math.min(from, to);
+        switch (Math.abs(to - from)) {
+            case BOARD_DIMENSION:
+                return isSet(up, low);
+            case 1:
+                return low / BOARD_DIMENSION == Math.max(from, to) / BOARD_DIMENSION && isSet(right, low);
+            default:
+                return false;
+        }
+    }
+
+    private static void set(long[] mask, int bit) {
+        mask[bit >>> 6] |= 1L << bit;
+    }
+
+    private static boolean isSet(long[] mask, int bit) {
+        return (mask[bit >>> 6] & (1L << bit)) != 0;
+    }
+}
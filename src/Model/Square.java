@@ -7,10 +7,23 @@ import static Utilities.Constants.BOARD_DIMENSION;
 
 /**
  * Represents a square on the game board.
+ * Squares are immutable, and the squares on the board and up to two steps around it are preallocated,
+ * so {@link #of(int, int)} and the methods that step to other squares return shared instances instead of allocating.
  */
 public class Square {
-    private int row;
-    private int col;
+    // The interned squares cover every neighbor and jump destination of a square on the board.
+    private static final int MARGIN = 2;
+    private static final int SPAN = BOARD_DIMENSION + 2 * MARGIN;
+    private static final Square[] SQUARES = new Square[SPAN * SPAN];
+
+    static {
+        for (int row = 0; row < SPAN; row++)
+            for (int col = 0; col < SPAN; col++)
+                SQUARES[row * SPAN + col] = new Square(row - MARGIN, col - MARGIN);
+    }
+
+    private final int row;
+    private final int col;
 
     /**
      * Constructs a square with the specified row and column indices.
@@ -30,21 +43,54 @@ public class Square {
      * @param s the string representation of the square's location
      */
     public Square(String s) {
-        if (s.length() > 1) {
-            this.row = s.charAt(1) - '1';
-            this.col = s.charAt(0) - 'a';
-        }
+        this.row = s.length() > 1 ? s.charAt(1) - '1' : 0;
+        this.col = s.length() > 1 ? s.charAt(0) - 'a' : 0;
+    }
+
+    /**
+     * Gets the shared square with the specified row and column indices.
+     * A square more than two steps off the board is allocated.
+     *
+     * @param row the index of the row
+     * @param col the index of the column
+     * @return the square
+     */
+    public static Square of(int row, int col) {
+        int spanRow = row + MARGIN, spanCol = col + MARGIN;
+        if (spanRow < 0 || spanRow >= SPAN || spanCol < 0 || spanCol >= SPAN)
+            return new Square(row, col);
+        return SQUARES[spanRow * SPAN + spanCol];
     }
 
     /**
-     * Creates a new square object with the indices of the current square plus the specified displacements.
+     * Gets the shared square of an index in the board array, the reverse of {@link #toIndex()}.
+     *
+     * @param index the index of the square, 0-80
+     * @return the square
+     */
+    public static Square of(int index) {
+        return of(index / BOARD_DIMENSION, index % BOARD_DIMENSION);
+    }
+
+    /**
+     * Gets the shared square of a string location, e.g. "a4".
+     *
+     * @param s the string representation of the square's location
+     * @return the square
+     */
+    public static Square of(String s) {
+        return s.length() > 1 ? of(s.charAt(1) - '1', s.charAt(0) - 'a') : of(0, 0);
+    }
+
+    /**
+     * Gets the square with the indices of the current square plus the specified displacements.
      *
      * @param row the displacement of the row
      * @param col the displacement of the column
-     * @return a new square with the displacement applied
+     * @return the square with the displacement applied
      */
     public Square neighbor(int row, int col) {
-        return new Square(this.row + row, this.col + col);
+        return of(this.row + row, this.col + col);
     }
 
     /**
@@ -61,7 +107,7 @@ public class Square {
                     int newRow = row + rowOffset;
                     int newCol = col + colOffset;
                     if (row >= 0 && row < 9 && col >= 0 && col < 9) {
-                        neighbors.add(new Square(newRow, newCol));
+                        neighbors.add(of(newRow, newCol));
                     }
                 }
             }
@@ -86,8 +132,7 @@ public class Square {
      * @return the square that is 2 squares away from the current square
      */
     public Square opposite(Square sq) {
-//        System.out.println(this + " " + new Square(2 * sq.row - row, 2 * sq.col - col));
-        return new Square(2 * sq.row - row, 2 * sq.col - col);
+        return of(2 * sq.row - row, 2 * sq.col - col);
     }
 
     /**
@@ -147,5 +192,9 @@ public class Square {
         Square square = (Square) o;
         return row == square.row && col == square.col;
     }
+
+    public int hashCode() {
+        return 31 * row + col;
+    }
 }
 
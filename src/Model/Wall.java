@@ -2,13 +2,70 @@ package Model;
 
 import java.util.Objects;
 
+import static Utilities.Constants.BOARD_DIMENSION;
+
 /**
  * Represents a wall in the game.
+ * Walls are immutable, and the walls that start on the board or up to two steps around it are preallocated,
+ * so {@link #of(Square, Orientation)}, {@link #fromSlot(int)} and {@link #neighbor} return shared instances
+ * instead of allocating.
  */
 public class Wall {
+    /**
+     * The number of distinct wall placements on the board.
+     */
+    public static final int WALL_SLOTS = 2 * (BOARD_DIMENSION - 1) * (BOARD_DIMENSION - 1);
+
+    // The interned walls cover every neighbor of a wall on the board.
+    private static final int MARGIN = 2;
+    private static final int SPAN = BOARD_DIMENSION + 2 * MARGIN;
+    private static final Wall[] WALLS = new Wall[SPAN * SPAN * 2];
+    private static final Wall[] SLOTS = new Wall[WALL_SLOTS];
+    /**
+     * Two longs per slot: the slots of the walls that can't be on the board together with the wall at the slot,
+     * that is the wall itself, the wall that crosses it and the walls that overlap it.
+     */
+    private static final long[] CONFLICTS = new long[WALL_SLOTS * 2];
+
+    static {
+        for (int row = 0; row < SPAN; row++)
+            for (int col = 0; col < SPAN; col++)
+                for (Orientation orientation : Orientation.values())
+                    WALLS[(row * SPAN + col) * 2 + orientation.ordinal()] =
+                            new Wall(Square.of(row - MARGIN, col - MARGIN), orientation);
+        int rowsOfWalls = BOARD_DIMENSION - 1;
+        for (int slot = 0; slot < WALL_SLOTS / 2; slot++) {
+            SLOTS[slot] = of(Square.of(slot / rowsOfWalls, slot % rowsOfWalls), Orientation.HORIZONTAL);
+            SLOTS[WALL_SLOTS / 2 + slot] = of(Square.of(slot / rowsOfWalls + 1, slot % rowsOfWalls), Orientation.VERTICAL);
+        }
+        // A horizontal wall at slot s crosses the vertical wall at slot s + 64 and overlaps its left and right neighbors,
+        // a vertical wall crosses the horizontal wall at slot s - 64 and overlaps the walls below and above it.
+        for (int slot = 0; slot < WALL_SLOTS / 2; slot++) {
+            int col = slot % rowsOfWalls;
+            setConflict(slot, slot);
+            setConflict(slot, slot + WALL_SLOTS / 2);
+            if (col > 0)
+                setConflict(slot, slot - 1);
+            if (col < rowsOfWalls - 1)
+                setConflict(slot, slot + 1);
+        }
+        for (int slot = WALL_SLOTS / 2; slot < WALL_SLOTS; slot++) {
+            int row = (slot - WALL_SLOTS / 2) / rowsOfWalls;
+            setConflict(slot, slot);
+            setConflict(slot, slot - WALL_SLOTS / 2);
+            if (row > 0)
+                setConflict(slot, slot - rowsOfWalls);
+            if (row < rowsOfWalls - 1)
+                setConflict(slot, slot + rowsOfWalls);
+        }
+    }
+
+    private static void setConflict(int slot, int other) {
+        CONFLICTS[slot * 2 + (other >>> 6)] |= 1L << other;
+    }
 
-    public Square startingSq;
-    public Orientation orientation = null;
+    public final Square startingSq;
+    public final Orientation orientation;
 
     /**
      * Constructs a wall with the specified starting square and orientation.
@@ -39,10 +96,8 @@ public class Wall {
      * @param s the string representation of the wall
      */
     public Wall(String s) {
-        if (s.length() > 2) {
-            this.startingSq = new Square(s.substring(0, 2));
-            this.orientation = s.charAt(2) == 'h' ? Orientation.HORIZONTAL : Orientation.VERTICAL;
-        }
+        this.startingSq = s.length() > 2 ? Square.of(s.substring(0, 2)) : null;
+        this.orientation = s.length() > 2 ? (s.charAt(2) == 'h' ? Orientation.HORIZONTAL : Orientation.VERTICAL) : null;
     }
 
     public Wall(Wall other) {
@@ -50,6 +105,44 @@ public class Wall {
         this.orientation = other.orientation;
     }
 
+    /**
+     * Gets the shared wall with the specified starting square and orientation.
+     * A wall that starts more than two steps off the board is allocated.
+     *
+     * @param startingSq  the square located at the start of the wall
+     * @param orientation the direction that the wall will go in (vertical or horizontal)
+     * @return the wall
+     */
+    public static Wall of(Square startingSq, Orientation orientation) {
+        if (startingSq == null || orientation == null)
+            return new Wall(startingSq, orientation);
+        int row = startingSq.getRow() + MARGIN, col = startingSq.getCol() + MARGIN;
+        if (row < 0 || row >= SPAN || col < 0 || col >= SPAN)
+            return new Wall(startingSq, orientation);
+        return WALLS[(row * SPAN + col) * 2 + orientation.ordinal()];
+    }
+
+    /**
+     * Gets the shared wall with the specified starting square and orientation.
+     *
+     * @param startingSq  the square located at the start of the wall
+     * @param orientation the direction that the wall will go in (specified as 'h' for horizontal or 'v' for vertical)
+     * @return the wall
+     */
+    public static Wall of(Square startingSq, char orientation) {
+        return of(startingSq, orientation == 'h' ? Orientation.HORIZONTAL : Orientation.VERTICAL);
+    }
+
+    /**
+     * Gets the shared wall of a string representation, e.g. "e3v".
+     *
+     * @param s the string representation of the wall
+     * @return the wall
+     */
+    public static Wall of(String s) {
+        return s.length() > 2 ? of(Square.of(s.substring(0, 2)), s.charAt(2)) : new Wall(s);
+    }
+
     /**
      * Returns the neighbor wall of the specified row, column, and orientation.
      *
@@ -59,8 +152,7 @@ public class Wall {
      * @return the neighbor wall
      */
     public Wall neighbor(int row, int column, Orientation orientation) {
-        Square neighborSq = new Square(startingSq.getRow() + row, startingSq.getCol() + column);
-        return new Wall(neighborSq, orientation);
+        return of(startingSq.neighbor(row, column), orientation);
     }
 
     /**
@@ -82,6 +174,46 @@ public class Wall {
     }
 
 
+    /**
+     * Converts the wall to its slot index, horizontal walls take slots 0-63 and vertical walls take slots 64-127.
+     *
+     * @return the slot index of the wall, or -1 if the wall doesn't fit on the board
+     */
+    public int toSlot() {
+        if (startingSq == null || orientation == null)
+            return -1;
+        int row = startingSq.getRow();
+        int col = startingSq.getCol();
+        if (col < 0 || col >= BOARD_DIMENSION - 1)
+            return -1;
+        if (orientation == Orientation.HORIZONTAL)
+            return (row >= 0 && row < BOARD_DIMENSION - 1) ? row * (BOARD_DIMENSION - 1) + col : -1;
+        return (row >= 1 && row < BOARD_DIMENSION) ? WALL_SLOTS / 2 + (row - 1) * (BOARD_DIMENSION - 1) + col : -1;
+    }
+
+    /**
+     * Gets the shared wall of a slot index, the reverse of {@link #toSlot()}.
+     *
+     * @param slot the slot index, 0-127
+     * @return the wall at that slot
+     */
+    public static Wall fromSlot(int slot) {
+        return SLOTS[slot];
+    }
+
+    /**
+     * Gets half of the mask of the walls that can't be on the board together with the wall at a slot:
+     * the wall itself, the wall that crosses it and the walls that overlap it.
+     * A wall can be placed next to the placed walls when both halves don't intersect the placed walls.
+     *
+     * @param slot the slot index, 0-127
+     * @param half 0 for the horizontal walls, 1 for the vertical walls
+     * @return the mask of the conflicting slots of that half
+     */
+    public static long getConflicts(int slot, int half) {
+        return CONFLICTS[slot * 2 + half];
+    }
+
     public String toString() {
         return startingSq.toString() + orientation.name().toLowerCase().charAt(0);
     }
@@ -93,6 +225,10 @@ public class Wall {
         return Objects.equals(startingSq, wall.startingSq) && orientation == wall.orientation;
     }
 
+    public int hashCode() {
+        return 3 * Objects.hashCode(startingSq) + (orientation == null ? 0 : orientation.ordinal() + 1);
+    }
+
     /**
      * Represents the orientation of a wall (horizontal or vertical).
      */
@@ -0,0 +1,216 @@
+package Model;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Decides which walls can legally be placed on a {@link BitBoard}.
+ * A wall that doesn't cross a placed wall and doesn't cut any edge of the players' current shortest paths
+ * is legal without any search, since both players keep that path. A wall that touches one of the paths is checked
+ * against the shortest-path DAGs of the players (see {@link PathDag}), which are only calculated for the first such
+ * wall of a board state: if the wall doesn't block every shortest path of either player, it is legal as well.
+ * Only walls that lengthen one of the paths are placed virtually to check if both players are still connected to
+ * their goals, and that verdict is cached per board state (walls and both positions).
+ */
+class WallOracle {
+    private static final int SQUARES = BOARD_DIMENSION * BOARD_DIMENSION;
+    private static final int HORIZONTAL_SLOTS = Wall.WALL_SLOTS / 2;
+    private static final int CACHE_SIZE = 1024;
+
+    private final BitBoard board;
+
+    // The board state that the path mask was calculated for.
+    private long pathWalls0 = -1, pathWalls1 = -1;
+    private int pathSquare0 = -1, pathSquare1 = -1, pathDestRow0 = -1, pathDestRow1 = -1;
+    private boolean connected;
+    /**
+     * The wall slots that cut an edge of either player's shortest path.
+     */
+    private final long[] pathWalls = new long[2];
+    /**
+     * The wall slots that lengthen either player's shortest path, valid once calculated for the board state.
+     */
+    private final long[] lengtheningWalls = new long[2];
+    private boolean lengtheningWallsValid;
+    private final PathDag dag = new PathDag();
+
+    // Direct mapped cache of "both players are connected" verdicts, keyed by the walls and the squares of the players.
+    private final long[] cacheWalls0 = new long[CACHE_SIZE];
+    private final long[] cacheWalls1 = new long[CACHE_SIZE];
+    private final int[] cachePlayers = new int[CACHE_SIZE];
+    private final boolean[] cacheConnected = new boolean[CACHE_SIZE];
+
+    // The wall placements judged, for instrumentation.
+    private long checks;
+
+    /**
+     * Constructs the oracle of a board.
+     *
+     * @param board The board whose walls are checked.
+     */
+    WallOracle(BitBoard board) {
+        this.board = board;
+    }
+
+    /**
+     * Checks if the wall at the given slot can be placed without crossing a wall or cutting a player off its goal.
+     *
+     * @param slot     The slot of the wall.
+     * @param square0  The square of the first player.
+     * @param destRow0 The destination row of the first player.
+     * @param square1  The square of the second player.
+     * @param destRow1 The destination row of the second player.
+     * @return True if the wall placement is legal, false otherwise.
+     */
+    boolean isLegal(int slot, int square0, int destRow0, int square1, int destRow1) {
+        checks++;
+        if (board.crossesPlacedWall(slot))
+            return false;
+        updatePaths(square0, destRow0, square1, destRow1);
+        if (!connected)
+            return false;
+        if ((pathWalls[slot >>> 6] & (1L << slot)) == 0)
+            return true;
+        return isConnectedWith(slot, square0, destRow0, square1, destRow1);
+    }
+
+    /**
+     * Checks if the wall at the given slot cuts a player off its goal, whether it crosses a placed wall or not.
+     *
+     * @param slot     The slot of the wall, which must not be placed.
+     * @param square0  The square of the first player.
+     * @param destRow0 The destination row of the first player.
+     * @param square1  The square of the second player.
+     * @param destRow1 The destination row of the second player.
+     * @return True if either player can't reach its goal with the wall, false otherwise.
+     */
+    boolean blocksPath(int slot, int square0, int destRow0, int square1, int destRow1) {
+        updatePaths(square0, destRow0, square1, destRow1);
+        if (!connected)
+            return true;
+        if ((pathWalls[slot >>> 6] & (1L << slot)) == 0)
+            return false;
+        return !isConnectedWith(slot, square0, destRow0, square1, destRow1);
+    }
+
+    /**
+     * Calculates every legal wall placement at once.
+     *
+     * @param square0  The square of the first player.
+     * @param destRow0 The destination row of the first player.
+     * @param square1  The square of the second player.
+     * @param destRow1 The destination row of the second player.
+     * @param legal    A mask of two longs that receives the legal wall slots.
+     */
+    void legalWalls(int square0, int destRow0, int square1, int destRow1, long[] legal) {
+        board.getFreeWalls(legal);
+        checks += Long.bitCount(legal[0]) + Long.bitCount(legal[1]);
+        updatePaths(square0, destRow0, square1, destRow1);
+        if (!connected) {
+            legal[0] = legal[1] = 0;
+            return;
+        }
+        for (int i = 0; i < 2; i++) {
+            long toCheck = legal[i] & pathWalls[i];
+            while (toCheck != 0) {
+                long bit = Long.lowestOneBit(toCheck);
+                toCheck ^= bit;
+                int slot = (i << 6) + Long.numberOfTrailingZeros(bit);
+                if (!isConnectedWith(slot, square0, destRow0, square1, destRow1))
+                    legal[i] &= ~bit;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of wall placements judged since the oracle was created.
+     *
+     * @return The number of single checks plus the free walls of every call of {@link #legalWalls}.
+     */
+    long getCheckCount() {
+        return checks;
+    }
+
+    /**
+     * Checks if both players are still connected to their goals when the wall at the given slot is added.
+     */
+    private boolean isConnectedWith(int slot, int square0, int destRow0, int square1, int destRow1) {
+        long walls0 = board.getWallMask(0), walls1 = board.getWallMask(1);
+        if (slot < HORIZONTAL_SLOTS)
+            walls0 |= 1L << slot;
+        else
+            walls1 |= 1L << slot;
+        int players = (square0 * SQUARES + square1) + 1;
+        int index = hash(walls0, walls1, players);
+        if (cachePlayers[index] == players && cacheWalls0[index] == walls0 && cacheWalls1[index] == walls1)
+            return cacheConnected[index];
+
+        boolean result = true;
+        if (lengthens(slot, square0, destRow0, square1, destRow1)) {
+            board.addWall(slot);
+            result = board.distanceToGoal(square0, destRow0) != DistanceField.UNREACHABLE
+                    && board.distanceToGoal(square1, destRow1) != DistanceField.UNREACHABLE;
+            board.removeWall(slot);
+        }
+
+        cacheWalls0[index] = walls0;
+        cacheWalls1[index] = walls1;
+        cachePlayers[index] = players;
+        cacheConnected[index] = result;
+        return result;
+    }
+
+    /**
+     * Checks if the wall at the given slot lengthens either player's shortest path, calculating the shortest-path
+     * DAGs of the players the first time for the board state.
+     */
+    private boolean lengthens(int slot, int square0, int destRow0, int square1, int destRow1) {
+        if (!lengtheningWallsValid) {
+            lengtheningWalls[0] = lengtheningWalls[1] = 0;
+            board.getPathDag(square0, destRow0, dag);
+            dag.getLengtheningWalls(lengtheningWalls);
+            board.getPathDag(square1, destRow1, dag);
+            dag.getLengtheningWalls(lengtheningWalls);
+            lengtheningWallsValid = true;
+        }
+        return (lengtheningWalls[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Recalculates the mask of walls that cut the players' shortest paths if the board state changed.
+     */
+    private void updatePaths(int square0, int destRow0, int square1, int destRow1) {
+        long walls0 = board.getWallMask(0), walls1 = board.getWallMask(1);
+        if (walls0 == pathWalls0 && walls1 == pathWalls1 && square0 == pathSquare0 && square1 == pathSquare1
+                && destRow0 == pathDestRow0 && destRow1 == pathDestRow1)
+            return;
+        pathWalls0 = walls0;
+        pathWalls1 = walls1;
+        pathSquare0 = square0;
+        pathSquare1 = square1;
+        pathDestRow0 = destRow0;
+        pathDestRow1 = destRow1;
+        pathWalls[0] = pathWalls[1] = 0;
+        lengtheningWallsValid = false;
+        connected = board.getPathWalls(square0, destRow0, pathWalls) && board.getPathWalls(square1, destRow1, pathWalls);
+    }
+
+    /**
+     * Mixes the key into an index of the cache. Every half is mixed on its own, so no two wall bits can cancel out,
+     * and the mixing spreads the high wall slots down to the index bits.
+     */
+    private static int hash(long walls0, long walls1, int players) {
+        return (int) mix(mix(walls0 + players * 0x9E3779B97F4A7C15L) ^ walls1) & (CACHE_SIZE - 1);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, every bit of the input affects every bit of the output.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,399 @@
+package Utilities;
+
+import Model.GameBoard;
+import Model.Square;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Shortest path search over square indices of a {@link GameBoard}, breadth-first by default, or in one of the other
+ * {@link Mode}s chosen per call.
+ * The queue, parent and visited buffers are primitive arrays that are reused between searches,
+ * so a search allocates nothing unless the path is materialized as a list of squares.
+ * An engine is not thread safe, every thread gets its own engine through {@link #get()}.
+ */
+public final class PathEngine {
+    /**
+     * The order in which a search visits the squares. Every mode finds a shortest path, but not always the same one.
+     */
+    public enum Mode {
+        /**
+         * Breadth-first from the source square, expanding the neighbors left, right, down, up.
+         */
+        BFS,
+        /**
+         * A* ordered by the steps taken plus the rows left to the destination row, which never overestimates
+         * the steps left, so the first square of the row that is expanded ends a shortest path.
+         * The squares wait in buckets by that cost, and the last square put in a bucket is expanded first.
+         */
+        A_STAR,
+        /**
+         * Breadth-first from the source square and from the whole destination row, one layer at a time on the side
+         * with the smaller frontier, until the two searches meet.
+         */
+        BIDIRECTIONAL
+    }
+
+    private static final int SQUARES = BOARD_DIMENSION * BOARD_DIMENSION;
+    // The highest A* cost: the longest path plus the most rows left.
+    private static final int MAX_COST = SQUARES + BOARD_DIMENSION;
+    // Every improvement of a square's depth puts an entry in a bucket, at most one per edge and one for the source.
+    private static final int MAX_ENTRIES = 4 * SQUARES + 1;
+    private static final ThreadLocal<PathEngine> ENGINES = ThreadLocal.withInitial(PathEngine::new);
+
+    private final int[] queue = new int[SQUARES];
+    private final int[] parent = new int[SQUARES];
+    private final int[] depth = new int[SQUARES];
+    /**
+     * A square was visited in the current search if its entry equals the current stamp, which saves clearing the buffer.
+     */
+    private final int[] visited = new int[SQUARES];
+    private int stamp;
+    private long searches;
+    private long expansions;
+    // The last square of the search from the source; a bidirectional search goes on from it to the row.
+    private int meet;
+    private boolean bidirectional;
+
+    // The search from the destination row of the bidirectional mode, the parent is the next square towards the row.
+    private final int[] queueBack = new int[SQUARES];
+    private final int[] parentBack = new int[SQUARES];
+    private final int[] depthBack = new int[SQUARES];
+    private final int[] visitedBack = new int[SQUARES];
+
+    // The buckets of the A* mode, as linked lists of entries.
+    private final int[] bucketHead = new int[MAX_COST + 1];
+    private final int[] entrySquare = new int[MAX_ENTRIES];
+    private final int[] entryNext = new int[MAX_ENTRIES];
+    private final int[] expanded = new int[SQUARES];
+
+    private final int[] pathBuffer = new int[SQUARES];
+
+    /**
+     * Gets the engine of the calling thread.
+     *
+     * @return The path engine of the current thread.
+     */
+    public static PathEngine get() {
+        return ENGINES.get();
+    }
+
+    /**
+     * Calculates the length of the shortest path from a square to the destination row.
+     *
+     * @param board   The board to search on.
+     * @param src     The index of the source square.
+     * @param destRow The row to reach.
+     * @return The number of steps in the shortest path, or -1 if the row can't be reached.
+     */
+    public int distance(GameBoard board, int src, int destRow) {
+        return distance(board, src, destRow, Mode.BFS);
+    }
+
+    /**
+     * Calculates the length of the shortest path from a square to the destination row.
+     *
+     * @param board   The board to search on.
+     * @param src     The index of the source square.
+     * @param destRow The row to reach.
+     * @param mode    The search mode.
+     * @return The number of steps in the shortest path, or -1 if the row can't be reached.
+     */
+    public int distance(GameBoard board, int src, int destRow, Mode mode) {
+        return search(board, src, destRow, mode);
+    }
+
+    /**
+     * Calculates the shortest path from a square to the destination row.
+     *
+     * @param board   The board to search on.
+     * @param src     The index of the source square.
+     * @param destRow The row to reach.
+     * @param path    A buffer of at least 81 entries that receives the square indices of the path, starting with src.
+     * @return The number of squares in the path, or 0 if the row can't be reached.
+     */
+    public int path(GameBoard board, int src, int destRow, int[] path) {
+        return path(board, src, destRow, path, Mode.BFS);
+    }
+
+    /**
+     * Calculates the shortest path from a square to the destination row.
+     *
+     * @param board   The board to search on.
+     * @param src     The index of the source square.
+     * @param destRow The row to reach.
+     * @param path    A buffer of at least 81 entries that receives the square indices of the path, starting with src.
+     * @param mode    The search mode.
+     * @return The number of squares in the path, or 0 if the row can't be reached.
+     */
+    public int path(GameBoard board, int src, int destRow, int[] path, Mode mode) {
+        int distance = search(board, src, destRow, mode);
+        if (distance < 0)
+            return 0;
+        for (int i = depth[meet], sq = meet; i >= 0; i--, sq = parent[sq])
+            path[i] = sq;
+        if (bidirectional)
+            for (int i = depth[meet] + 1, sq = parentBack[meet]; sq >= 0; i++, sq = parentBack[sq])
+                path[i] = sq;
+        return distance + 1;
+    }
+
+    /**
+     * Calculates the shortest path from a square to the destination row as a list of squares.
+     *
+     * @param board   The board to search on.
+     * @param srcSq   The source square.
+     * @param destRow The row to reach.
+     * @return The squares of the path starting with srcSq, or an empty list if the row can't be reached.
+     */
+    public ArrayList<Square> calculatePath(GameBoard board, Square srcSq, int destRow) {
+        return calculatePath(board, srcSq, destRow, Mode.BFS);
+    }
+
+    /**
+     * Calculates the shortest path from a square to the destination row as a list of squares.
+     *
+     * @param board   The board to search on.
+     * @param srcSq   The source square.
+     * @param destRow The row to reach.
+     * @param mode    The search mode.
+     * @return The squares of the path starting with srcSq, or an empty list if the row can't be reached.
+     */
+    public ArrayList<Square> calculatePath(GameBoard board, Square srcSq, int destRow, Mode mode) {
+        int length = path(board, srcSq.toIndex(), destRow, pathBuffer, mode);
+        ArrayList<Square> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++)
+            path.add(Square.of(pathBuffer[i]));
+        return path;
+    }
+
+    /**
+     * Gets the number of searches the engine ran since it was created, for instrumentation.
+     * The engine belongs to one thread, so the count is the searches of that thread.
+     *
+     * @return The number of searches.
+     */
+    public long getSearchCount() {
+        return searches;
+    }
+
+    /**
+     * Gets the number of squares the engine expanded in its searches since it was created, for instrumentation.
+     *
+     * @return The number of expanded squares.
+     */
+    public long getExpansionCount() {
+        return expansions;
+    }
+
+    /**
+     * Runs a search and fills the buffers that the path is read from, ending at {@link #meet}.
+     *
+     * @return The length of the shortest path, or -1 if the row can't be reached.
+     */
+    private int search(GameBoard board, int src, int destRow, Mode mode) {
+        searches++;
+        nextStamp();
+        visited[src] = stamp;
+        parent[src] = -1;
+        depth[src] = 0;
+        bidirectional = false;
+        switch (mode) {
+            case A_STAR:
+                meet = searchAStar(board, src, destRow);
+                break;
+            case BIDIRECTIONAL:
+                return searchBidirectional(board, src, destRow);
+            default:
+                meet = searchBreadthFirst(board, src, destRow);
+        }
+        return meet < 0 ? -1 : depth[meet];
+    }
+
+    /**
+     * Neighbors are expanded in the order left, right, down, up.
+     *
+     * @return The index of the first square found on the destination row, or -1 if there is none.
+     */
+    private int searchBreadthFirst(GameBoard board, int src, int destRow) {
+        int head = 0, tail = 0;
+        queue[tail++] = src;
+        while (head < tail) {
+            int curr = queue[head++];
+            expansions++;
+            if (curr / BOARD_DIMENSION == destRow)
+                return curr;
+            int col = curr % BOARD_DIMENSION;
+            if (col > 0)
+                tail = visit(board, curr, curr - 1, tail);
+            if (col < BOARD_DIMENSION - 1)
+                tail = visit(board, curr, curr + 1, tail);
+            if (curr >= BOARD_DIMENSION)
+                tail = visit(board, curr, curr - BOARD_DIMENSION, tail);
+            if (curr < SQUARES - BOARD_DIMENSION)
+                tail = visit(board, curr, curr + BOARD_DIMENSION, tail);
+        }
+        return -1;
+    }
+
+    private int visit(GameBoard board, int curr, int next, int tail) {
+        if (visited[next] != stamp && board.isConnected(curr, next)) {
+            visited[next] = stamp;
+            parent[next] = curr;
+            depth[next] = depth[curr] + 1;
+            queue[tail++] = next;
+        }
+        return tail;
+    }
+
+    /**
+     * The row distance never drops by more than one per step, so a square's cost never drops below the cost of the
+     * square it was reached from, and the buckets are emptied in order of cost.
+     *
+     * @return The index of the first square of the destination row that is expanded, or -1 if there is none.
+     */
+    private int searchAStar(GameBoard board, int src, int destRow) {
+        int entries = 0, maxCost = cost(src, destRow);
+        Arrays.fill(bucketHead, -1);
+        entrySquare[entries] = src;
+        entryNext[entries] = -1;
+        bucketHead[maxCost] = entries++;
+        for (int cost = maxCost; cost <= maxCost; cost++) {
+            while (bucketHead[cost] >= 0) {
+                int entry = bucketHead[cost];
+                bucketHead[cost] = entryNext[entry];
+                int curr = entrySquare[entry];
+                // An entry is stale once its square was expanded or reached by a shorter path.
+                if (expanded[curr] == stamp || cost(curr, destRow) != cost)
+                    continue;
+                expanded[curr] = stamp;
+                expansions++;
+                if (curr / BOARD_DIMENSION == destRow)
+                    return curr;
+                int col = curr % BOARD_DIMENSION;
+                for (int i = 0; i < 4; i++) {
+                    int next = neighbor(curr, col, i);
+                    if (next < 0 || !board.isConnected(curr, next))
+                        continue;
+                    if (visited[next] == stamp && depth[next] <= depth[curr] + 1)
+                        continue;
+                    visited[next] = stamp;
+                    parent[next] = curr;
+                    depth[next] = depth[curr] + 1;
+                    int nextCost = cost(next, destRow);
+                    entrySquare[entries] = next;
+                    entryNext[entries] = bucketHead[nextCost];
+                    bucketHead[nextCost] = entries++;
+                    maxCost = Math.max(maxCost, nextCost);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The steps taken to a square plus the rows left from it to the destination row.
+     */
+    private int cost(int sq, int destRow) {
+        return depth[sq] + Math.abs(sq / BOARD_DIMENSION - destRow);
+    }
+
+    /**
+     * Expands a whole layer on the side with the smaller frontier at a time. Once a layer reaches squares that the
+     * other side visited, the shortest of the paths through them is the shortest path.
+     *
+     * @return The length of the shortest path, or -1 if the row can't be reached.
+     */
+    private int searchBidirectional(GameBoard board, int src, int destRow) {
+        bidirectional = true;
+        meet = src;
+        if (src / BOARD_DIMENSION == destRow) {
+            parentBack[src] = -1;
+            return 0;
+        }
+        int head = 0, tail = 0, headBack = 0, tailBack = 0;
+        queue[tail++] = src;
+        for (int col = 0; col < BOARD_DIMENSION; col++) {
+            int sq = destRow * BOARD_DIMENSION + col;
+            visitedBack[sq] = stamp;
+            parentBack[sq] = -1;
+            depthBack[sq] = 0;
+            queueBack[tailBack++] = sq;
+        }
+        int best = -1;
+        while (head < tail && headBack < tailBack) {
+            if (tail - head <= tailBack - headBack) {
+                for (int layerEnd = tail; head < layerEnd; head++) {
+                    int curr = queue[head];
+                    expansions++;
+                    int col = curr % BOARD_DIMENSION;
+                    for (int i = 0; i < 4; i++) {
+                        int next = neighbor(curr, col, i);
+                        if (next < 0 || visited[next] == stamp || !board.isConnected(curr, next))
+                            continue;
+                        visited[next] = stamp;
+                        parent[next] = curr;
+                        depth[next] = depth[curr] + 1;
+                        queue[tail++] = next;
+                        if (visitedBack[next] == stamp && (best < 0 || depth[next] + depthBack[next] < best)) {
+                            best = depth[next] + depthBack[next];
+                            meet = next;
+                        }
+                    }
+                }
+            } else {
+                for (int layerEnd = tailBack; headBack < layerEnd; headBack++) {
+                    int curr = queueBack[headBack];
+                    expansions++;
+                    int col = curr % BOARD_DIMENSION;
+                    for (int i = 0; i < 4; i++) {
+                        int next = neighbor(curr, col, i);
+                        if (next < 0 || visitedBack[next] == stamp || !board.isConnected(curr, next))
+                            continue;
+                        visitedBack[next] = stamp;
+                        parentBack[next] = curr;
+                        depthBack[next] = depthBack[curr] + 1;
+                        queueBack[tailBack++] = next;
+                        if (visited[next] == stamp && (best < 0 || depth[next] + depthBack[next] < best)) {
+                            best = depth[next] + depthBack[next];
+                            meet = next;
+                        }
+                    }
+                }
+            }
+            if (best >= 0)
+                return best;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a neighbor of a square in the order left, right, down, up.
+     *
+     * @return The index of the neighbor, or -1 if it is off the board.
+     */
+    private static int neighbor(int sq, int col, int direction) {
+        switch (direction) {
+            case 0:
+                return col > 0 ? sq - 1 : -1;
+            case 1:
+                return col < BOARD_DIMENSION - 1 ? sq + 1 : -1;
+            case 2:
+                return sq >= BOARD_DIMENSION ? sq - BOARD_DIMENSION : -1;
+            default:
+                return sq < SQUARES - BOARD_DIMENSION ? sq + BOARD_DIMENSION : -1;
+        }
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            Arrays.fill(visitedBack, 0);
+            Arrays.fill(expanded, 0);
+            stamp = 1;
+        }
+    }
+}
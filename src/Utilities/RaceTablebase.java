@@ -0,0 +1,271 @@
+package Utilities;
+
+import Model.GameBoard;
+import Model.MoveGenerator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Solves the races of games where neither player has walls left. The walls can't change any more, so the game is a
+ * race of the two pawns on a fixed board, with its jumps, and every state of it is solved at once by retrograde
+ * analysis: the two squares and the side to move make 13122 states, each marked as a win or a loss in a number of
+ * plies, or a draw when neither player can force the end. The solved tables are cached by their walls.
+ */
+public final class RaceTablebase {
+    /**
+     * The player to move wins the race.
+     */
+    public static final int WIN = 1;
+    /**
+     * The player to move loses the race.
+     */
+    public static final int LOSS = -1;
+    /**
+     * Neither player can force the end of the race.
+     */
+    public static final int DRAW = 0;
+
+    private static final int SQUARES = BOARD_DIMENSION * BOARD_DIMENSION;
+    private static final int STATES = SQUARES * SQUARES * 2;
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<Key, Table> CACHE = Collections.synchronizedMap(new LinkedHashMap<Key, Table>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Key, Table> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    private RaceTablebase() {
+    }
+
+    /**
+     * Gets the solved races of a board, solving them if they aren't cached yet.
+     *
+     * @param board    The board with its final walls.
+     * @param destRow0 The destination row of the first player.
+     * @param destRow1 The destination row of the second player.
+     * @return The solved races.
+     */
+    public static Table get(GameBoard board, int destRow0, int destRow1) {
+        Key key = new Key(board.getWalls(0), board.getWalls(1), destRow0, destRow1);
+        Table table = CACHE.get(key);
+        if (table == null) {
+            table = new Table(board, destRow0, destRow1);
+            CACHE.put(key, table);
+        }
+        return table;
+    }
+
+    /**
+     * Gets the solved races of a board only if they are cached, so a caller with a time budget never waits for a
+     * board to be solved.
+     *
+     * @param board    The board with its final walls.
+     * @param destRow0 The destination row of the first player.
+     * @param destRow1 The destination row of the second player.
+     * @return The solved races, or null if they aren't cached.
+     */
+    public static Table peek(GameBoard board, int destRow0, int destRow1) {
+        return CACHE.get(new Key(board.getWalls(0), board.getWalls(1), destRow0, destRow1));
+    }
+
+    private static int index(int square0, int square1, int turn) {
+        return (square0 * SQUARES + square1) * 2 + turn;
+    }
+
+    /**
+     * The solved races of one board. A table is immutable once solved, so any thread can read it.
+     */
+    public static final class Table {
+        /**
+         * Per state: 0 for a draw, d + 1 for a win in d plies and -(d + 1) for a loss in d plies.
+         */
+        private final short[] values = new short[STATES];
+        /**
+         * Per state: the square of the best move, or -1 if the player to move has none or the race is over.
+         */
+        private final byte[] bestMoves = new byte[STATES];
+
+        private Table(GameBoard board, int destRow0, int destRow1) {
+            // The pawn moves of every pair of squares, the mover's square first.
+            int[] moves = new int[SQUARES * SQUARES * MoveGenerator.MAX_PAWN_MOVES];
+            byte[] moveCounts = new byte[SQUARES * SQUARES];
+            int[] buffer = new int[MoveGenerator.MAX_PAWN_MOVES];
+            for (int mover = 0; mover < SQUARES; mover++)
+                for (int other = 0; other < SQUARES; other++) {
+                    if (mover == other)
+                        continue;
+                    int pair = mover * SQUARES + other;
+                    int count = MoveGenerator.generatePawnMoves(board, mover, other, buffer);
+                    moveCounts[pair] = (byte) count;
+                    System.arraycopy(buffer, 0, moves, pair * MoveGenerator.MAX_PAWN_MOVES, count);
+                }
+
+            int[][] distances = {distances(board, destRow0, buffer), distances(board, destRow1, buffer)};
+
+            // The races that are over: the player who just moved is on their goal.
+            for (int square0 = 0; square0 < SQUARES; square0++)
+                for (int square1 = 0; square1 < SQUARES; square1++) {
+                    if (square0 == square1)
+                        continue;
+                    boolean atGoal0 = square0 / BOARD_DIMENSION == destRow0, atGoal1 = square1 / BOARD_DIMENSION == destRow1;
+                    for (int turn = 0; turn < 2; turn++) {
+                        boolean moverAtGoal = turn == 0 ? atGoal0 : atGoal1, otherAtGoal = turn == 0 ? atGoal1 : atGoal0;
+                        if (otherAtGoal)
+                            values[index(square0, square1, turn)] = -1;
+                        else if (moverAtGoal)
+                            values[index(square0, square1, turn)] = 1;
+                    }
+                }
+
+            // Round k finds the wins in k plies, which reach a loss in k - 1 plies,
+            // and the losses in k plies, where every move reaches a win in at most k - 1 plies.
+            boolean changed = true;
+            for (int k = 1; changed; k++) {
+                changed = false;
+                for (int state = 0; state < STATES; state++) {
+                    if (values[state] != 0)
+                        continue;
+                    int turn = state & 1, square0 = state / 2 / SQUARES, square1 = state / 2 % SQUARES;
+                    if (square0 == square1)
+                        continue;
+                    int mover = turn == 0 ? square0 : square1, other = turn == 0 ? square1 : square0;
+                    int pair = mover * SQUARES + other, count = moveCounts[pair];
+                    boolean allWins = count > 0;
+                    for (int i = 0; i < count; i++) {
+                        int target = moves[pair * MoveGenerator.MAX_PAWN_MOVES + i];
+                        int value = turn == 0 ? values[index(target, square1, 1)] : values[index(square0, target, 0)];
+                        if (value == -k) {
+                            values[state] = (short) (k + 1);
+                            allWins = false;
+                            changed = true;
+                            break;
+                        }
+                        if (value <= 0 || value > k)
+                            allWins = false;
+                    }
+                    if (allWins) {
+                        values[state] = (short) -(k + 1);
+                        changed = true;
+                    }
+                }
+            }
+
+            // The best move: the fastest win, the slowest loss, or a move that keeps the draw.
+            for (int state = 0; state < STATES; state++) {
+                bestMoves[state] = -1;
+                int turn = state & 1, square0 = state / 2 / SQUARES, square1 = state / 2 % SQUARES;
+                int value = values[state];
+                if (square0 == square1 || value == 1 || value == -1)
+                    continue;
+                int mover = turn == 0 ? square0 : square1, other = turn == 0 ? square1 : square0;
+                int pair = mover * SQUARES + other;
+                int best = -1;
+                long bestRank = Long.MIN_VALUE;
+                for (int i = 0; i < moveCounts[pair]; i++) {
+                    int target = moves[pair * MoveGenerator.MAX_PAWN_MOVES + i];
+                    int next = turn == 0 ? values[index(target, square1, 1)] : values[index(square0, target, 0)];
+                    // The opponent's loss is best, the sooner the better, then a draw, then the opponent's win, the later the better.
+                    // Equal moves are told apart by the player's own distance, so a lost or drawn player still walks to their goal.
+                    long rank = (next < 0 ? Short.MAX_VALUE + next : next == 0 ? 0 : -Short.MAX_VALUE + next) * (long) SQUARES
+                            - distances[turn][target];
+                    if (rank > bestRank) {
+                        bestRank = rank;
+                        best = target;
+                    }
+                }
+                bestMoves[state] = (byte) best;
+            }
+        }
+
+        /**
+         * Finds the distance of every square to a destination row for a pawn that is alone on the board.
+         *
+         * @return The distances, {@link #SQUARES} for the squares that can't reach the row.
+         */
+        private static int[] distances(GameBoard board, int destRow, int[] buffer) {
+            int[] distances = new int[SQUARES], queue = new int[SQUARES];
+            Arrays.fill(distances, SQUARES);
+            int head = 0, tail = 0;
+            for (int col = 0; col < BOARD_DIMENSION; col++) {
+                distances[destRow * BOARD_DIMENSION + col] = 0;
+                queue[tail++] = destRow * BOARD_DIMENSION + col;
+            }
+            while (head < tail) {
+                int square = queue[head++];
+                int count = MoveGenerator.generatePawnMoves(board, square, -1, buffer);
+                for (int i = 0; i < count; i++)
+                    if (distances[buffer[i]] == SQUARES) {
+                        distances[buffer[i]] = distances[square] + 1;
+                        queue[tail++] = buffer[i];
+                    }
+            }
+            return distances;
+        }
+
+        /**
+         * Gets the result of a race with perfect play.
+         *
+         * @param square0 The square of the first player.
+         * @param square1 The square of the second player.
+         * @param turn    The ID of the player to move.
+         * @return {@link #WIN} or {@link #LOSS} for the player to move, or {@link #DRAW}.
+         */
+        public int getResult(int square0, int square1, int turn) {
+            return Integer.signum(values[index(square0, square1, turn)]);
+        }
+
+        /**
+         * Gets the number of plies until a race ends with perfect play.
+         *
+         * @param square0 The square of the first player.
+         * @param square1 The square of the second player.
+         * @param turn    The ID of the player to move.
+         * @return The number of plies, or -1 for a draw.
+         */
+        public int getPlies(int square0, int square1, int turn) {
+            return Math.abs(values[index(square0, square1, turn)]) - 1;
+        }
+
+        /**
+         * Gets the best move of the player to move: the fastest win, the slowest loss, or a move that keeps the draw.
+         *
+         * @param square0 The square of the first player.
+         * @param square1 The square of the second player.
+         * @param turn    The ID of the player to move.
+         * @return The square to move to, or -1 if the race is over or the player can't move.
+         */
+        public int getBestMove(int square0, int square1, int turn) {
+            return bestMoves[index(square0, square1, turn)];
+        }
+    }
+
+    private static final class Key {
+        private final long walls0, walls1;
+        private final int destRow0, destRow1;
+
+        Key(long walls0, long walls1, int destRow0, int destRow1) {
+            this.walls0 = walls0;
+            this.walls1 = walls1;
+            this.destRow0 = destRow0;
+            this.destRow1 = destRow1;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return walls0 == key.walls0 && walls1 == key.walls1 && destRow0 == key.destRow0 && destRow1 == key.destRow1;
+        }
+
+        public int hashCode() {
+            return Objects.hash(walls0, walls1, destRow0, destRow1);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package Utilities;
+
+import Model.Move;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of search results keyed by the Zobrist hash of a game state.
+ * Every entry is two longs, the packed data and the key XORed with the data. Threads read and write entries
+ * without locks; an entry that was torn by a concurrent write doesn't pass the key check and is treated as a miss.
+ */
+public class TranspositionTable {
+    /**
+     * The stored score is the exact value of the state.
+     */
+    public static final int EXACT = 0;
+    /**
+     * The stored score is a lower bound of the value (the search failed high).
+     */
+    public static final int LOWER_BOUND = 1;
+    /**
+     * The stored score is an upper bound of the value (the search failed low).
+     */
+    public static final int UPPER_BOUND = 2;
+    /**
+     * Returned by {@link #probe(long)} when the state isn't in the table.
+     */
+    public static final long MISS = 0;
+
+    private static final int NO_MOVE = 0xFFFF;
+    private static final long PRESENT = 1L << 63;
+
+    /**
+     * Decides whether a new result overwrites the entry that occupies its index.
+     */
+    public enum ReplacementPolicy {
+        /**
+         * The newest result always replaces the old one.
+         */
+        ALWAYS,
+        /**
+         * A result only replaces an entry of the same state, of an earlier search, or of a shallower or equal depth.
+         */
+        DEPTH_PREFERRED
+    }
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private final ReplacementPolicy policy;
+    private volatile int generation;
+
+    /**
+     * Constructs a table.
+     *
+     * @param sizeBits The table holds 2^sizeBits entries.
+     * @param policy   The replacement policy of the table.
+     */
+    public TranspositionTable(int sizeBits, ReplacementPolicy policy) {
+        this.keys = new long[1 << sizeBits];
+        this.data = new long[1 << sizeBits];
+        this.mask = (1 << sizeBits) - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Looks a state up.
+     *
+     * @param key The Zobrist hash of the state.
+     * @return The packed entry of the state, or {@link #MISS}. Read it with the static accessors.
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) != key || (entry & PRESENT) == 0)
+            return MISS;
+        return entry;
+    }
+
+    /**
+     * Stores the result of searching a state.
+     *
+     * @param key   The Zobrist hash of the state.
+     * @param score The score of the state, between -32768 and 32767.
+     * @param depth The depth the state was searched to, between 0 and 255.
+     * @param bound One of {@link #EXACT}, {@link #LOWER_BOUND} and {@link #UPPER_BOUND}.
+     * @param move  The best move found (see {@link Move}), or {@link Move#NONE}.
+     */
+    public void store(long key, int score, int depth, int bound, int move) {
+        int index = (int) key & mask;
+        if (policy == ReplacementPolicy.DEPTH_PREFERRED) {
+            long old = data[index];
+            boolean sameState = (keys[index] ^ old) == key;
+            if ((old & PRESENT) != 0 && !sameState && generation(old) == (generation & 0xFF) && depth(old) > depth)
+                return;
+        }
+        long entry = (score & 0xFFFFL)
+                | (long) (depth & 0xFF) << 16
+                | (long) (bound & 0x3) << 24
+                | (long) (move < 0 ? NO_MOVE : move & 0xFFFF) << 26
+                | (long) (generation & 0xFF) << 42
+                | PRESENT;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * Starts a new search, so entries of earlier searches can be replaced by any new result.
+     */
+    public void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Removes every entry from the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    public static int score(long entry) {
+        return (short) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    public static int move(long entry) {
+        int move = (int) (entry >>> 26) & 0xFFFF;
+        return move == NO_MOVE ? Move.NONE : move;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 42) & 0xFF;
+    }
+}
@@ -0,0 +1,75 @@
+package Utilities;
+
+import Model.Wall;
+
+import java.util.Random;
+
+import static Utilities.Constants.BOARD_DIMENSION;
+
+/**
+ * Contains the random keys used to hash game states.
+ * A state hash is the XOR of the keys of its placed walls, both pawn squares, both wall counts and the side to move.
+ * The keys come from a fixed seed, so hashes are stable between runs and can be stored.
+ */
+public abstract class Zobrist {
+    private static final int MAX_WALLS = 10;
+    private static final long[] WALL_KEYS = new long[Wall.WALL_SLOTS];
+    private static final long[][] PAWN_KEYS = new long[2][BOARD_DIMENSION * BOARD_DIMENSION];
+    private static final long[][] WALLS_LEFT_KEYS = new long[2][MAX_WALLS + 1];
+    private static final long SIDE_KEY;
+
+    static {
+        Random random = new Random(0x51A7E5EEDL);
+        for (int i = 0; i < WALL_KEYS.length; i++)
+            WALL_KEYS[i] = random.nextLong();
+        for (long[] keys : PAWN_KEYS)
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = random.nextLong();
+        for (long[] keys : WALLS_LEFT_KEYS)
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = random.nextLong();
+        SIDE_KEY = random.nextLong();
+    }
+
+    /**
+     * Gets the key of a placed wall.
+     *
+     * @param slot The slot of the wall.
+     * @return The key of the wall.
+     */
+    public static long wall(int slot) {
+        return WALL_KEYS[slot];
+    }
+
+    /**
+     * Gets the key of a player's pawn on a square.
+     *
+     * @param playerId The ID of the player.
+     * @param square   The index of the square.
+     * @return The key of the pawn.
+     */
+    public static long pawn(int playerId, int square) {
+        return PAWN_KEYS[playerId][square];
+    }
+
+    /**
+     * Gets the key of the number of walls a player has left.
+     *
+     * @param playerId  The ID of the player.
+     * @param wallsLeft The number of walls the player has left.
+     * @return The key of the wall count.
+     */
+    public static long wallsLeft(int playerId, int wallsLeft) {
+        return WALLS_LEFT_KEYS[playerId][wallsLeft];
+    }
+
+    /**
+     * Gets the key of the side to move.
+     *
+     * @param turn The ID of the player to move.
+     * @return The key of the side to move, 0 for the first player.
+     */
+    public static long side(int turn) {
+        return turn == 0 ? 0 : SIDE_KEY;
+    }
+}
@@ -1,6 +1,7 @@
 package View;
 
 import Controller.ClientHandler;
+import Controller.GameLog;
 import Controller.ViewUpdater;
 import View.pieces.Pawn;
 import View.pieces.Pawn.PawnColor;
@@ -23,6 +24,9 @@ import javafx.scene.paint.Color;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
 
 import static Utilities.Constants.*;
@@ -37,19 +41,27 @@ public class GUI extends Application {
     private InfoPane infoPane;
     private Pawn[] pawnList;
     private ClientHandler clientHandler;
+    private GameLog gameLog;
 
     /**
      * Initializes and starts the Quoridor game.
+     * The game is appended to the game log given as the first program argument, if there is one.
      *
      * @param primaryStage the primary stage for displaying the game GUI
+     * @throws IOException If the game log can't be opened.
      */
-    public void start(Stage primaryStage) {
+    public void start(Stage primaryStage) throws IOException {
         startingPlayer = selectStartingPlayer(); // 0 - Human starts     1 - AI starts
         createPawns();
 
         ViewUpdater viewUpdater = new ViewUpdater(this); // Create the class that the controller uses to update the view.
         clientHandler = new ClientHandler(viewUpdater, startingPlayer); // Create the class that handles events from the GUI
         clientHandler.initPlayers(pawnList);
+        List<String> args = getParameters().getRaw();
+        if (!args.isEmpty()) {
+            gameLog = GameLog.open(Paths.get(args.get(0)));
+            clientHandler.setGameLog(gameLog);
+        }
 
         Pane root = populateBoard();
         Scene scene = new Scene(root);
@@ -353,6 +365,19 @@ public class GUI extends Application {
 
 
 
+    /**
+     * Ends the game when the window is closed and closes the game log.
+     *
+     * @throws IOException If the game log can't be closed.
+     */
+    @Override
+    public void stop() throws IOException {
+        if (clientHandler != null)
+            clientHandler.endGame();
+        if (gameLog != null)
+            gameLog.close();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }